@@ -13,15 +13,14 @@ import at.pavlov.cannons.container.MovingObject;
 import at.pavlov.cannons.container.Target;
 import at.pavlov.cannons.event.CannonTargetEvent;
 import at.pavlov.cannons.event.CannonUseEvent;
-import at.pavlov.cannons.projectile.Projectile;
+import at.pavlov.cannons.scheduler.SentryScheduler;
+import at.pavlov.cannons.scheduler.SentrySolver;
 import at.pavlov.cannons.utils.CannonsUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.block.Action;
 import org.bukkit.scoreboard.Team;
@@ -65,11 +64,17 @@ public class Aiming {
     private final Cannons plugin;
     private final UserMessages userMessages;
     private final Config config;
+    //spreads the sentry updates over several ticks
+    private final SentryScheduler sentryScheduler;
+    //calculates the firing solutions of sentries
+    private final SentrySolver sentrySolver;
+    //movement of the sentry targets to lead them
+    private final TargetMotionTracker motionTracker;
 
     //<Player,cannon name>
     private ConcurrentHashMap<UUID, UUID> inAimingMode = new ConcurrentHashMap<UUID, UUID>();
 	//<Cannon>
-	private HashSet<UUID> sentryCannons = new HashSet<UUID>();
+	private Set<UUID> sentryCannons = ConcurrentHashMap.newKeySet();
     //<Player>
     private HashSet<UUID> imitatedEffectsOff = new HashSet<UUID>();
 
@@ -85,6 +90,9 @@ public class Aiming {
         this.plugin = plugin;
         this.config = plugin.getMyConfig();
         this.userMessages = plugin.getMyConfig().getUserMessages();
+        this.sentryScheduler = new SentryScheduler(plugin);
+        this.motionTracker = new TargetMotionTracker();
+        this.sentrySolver = new SentrySolver(plugin, motionTracker);
     }
 
     /**
@@ -93,7 +101,7 @@ public class Aiming {
     public void initAimingMode()
     {
         //changing angles for aiming mode
-        plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, new Runnable()
+        plugin.getRegionTaskScheduler().runTimer(new Runnable()
         {
             public void run()
             {
@@ -535,6 +543,7 @@ public class Aiming {
 	}
 
     private void updateSentryMode(){
+        ArrayList<Cannon> cannons = new ArrayList<Cannon>();
         Iterator<UUID> iter = sentryCannons.iterator();
         while(iter.hasNext()) {
             Cannon cannon = CannonManager.getCannon(iter.next());
@@ -543,379 +552,214 @@ public class Aiming {
                 iter.remove();
                 continue;
             }
+            cannons.add(cannon);
+        }
+        motionTracker.cleanUp();
+        //on regionized servers every cannon is updated by the region it is in
+        plugin.getRegionTaskScheduler().runShardedBatch(sentryScheduler.selectCannons(cannons), Cannon::getLocation, this::updateSentryCannons);
+    }
 
-            //todo test if chunk loading is caused by this function
-            if (!cannon.isChunkLoaded()){
-            	plugin.logDebug("Chunk not loaded " + cannon.getCannonName() + " sentry function deactivated");
-            	continue;
-			}
-
-			// ignore cannons which are not in sentry mode
-			if (!cannon.isSentryAutomatic() || !cannon.isPaid())
-				return;
-
-			// load from chest if the cannon is in automatic mode
-			if (!cannon.isLoaded() && !cannon.isLoading() && !cannon.isFiring() && System.currentTimeMillis() > cannon.getSentryLastLoadingFailed() + 5000) {
-				MessageEnum messageEnum = cannon.reloadFromChests(null, !cannon.getCannonDesign().isAmmoInfiniteForRedstone());
-				if (messageEnum.isError()) {
-					cannon.setSentryLastLoadingFailed(System.currentTimeMillis());
-					CannonsUtil.playErrorSound(cannon.getMuzzle());
-					plugin.logDebug("Sentry " + cannon.getCannonName() + " loading message: " + messageEnum);
-				}
-			}
-
-            // calculate a firing solution
-            if (cannon.isChunkLoaded() && System.currentTimeMillis() > (cannon.getLastSentryUpdate() + cannon.getCannonDesign().getSentryUpdateTime())) {
-                cannon.setLastSentryUpdate(System.currentTimeMillis());
-
-                HashMap<UUID, Target> targets = CannonsUtil.getNearbyTargets(cannon.getMuzzle(), cannon.getCannonDesign().getSentryMinRange(), cannon.getCannonDesign().getSentryMaxRange());
-                //old target - is this still valid?
-                if (cannon.hasSentryEntity()) {
-                    if (System.currentTimeMillis() > cannon.getSentryTargetingTime() + cannon.getCannonDesign().getSentrySwapTime() || !targets.containsKey(cannon.getSentryEntity())) {
-                        cannon.setSentryTarget(null);
-                    }
-                    else{
-                        //is the previous target still valid
-                        Target target = targets.get(cannon.getSentryEntity());
-                        if (!canFindTargetSolution(cannon, target, target.getCenterLocation(), target.getVelocity())) {
-                            cannon.setSentryTarget(null);
-                        }
-                    }
-                }
-
-                // find a suitable target
-                if (!cannon.hasSentryEntity()){
-                    ArrayList<Target> possibleTargets = new ArrayList<Target>();
-                    for (Target t : targets.values()) {
-                    	//Monster
-                        if (t.getTargetType() == TargetType.MONSTER && cannon.isTargetMob()) {
-                            if (canFindTargetSolution(cannon, t, t.getCenterLocation(), t.getVelocity())){
-                                possibleTargets.add(t);
-							}
-                        }
-                        //Player
-						else if (t.getTargetType() == TargetType.PLAYER && cannon.isTargetPlayer() && !cannon.isWhitelisted(t.getUniqueId())) {
-							// ignore if target and player are in the same team
-							Player p = Bukkit.getPlayer(t.getUniqueId());
-							if (p != null && Bukkit.getScoreboardManager().getMainScoreboard() != null) {
-								Team team = Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(p);
-								//Team team = Bukkit.getScoreboardManager().getMainScoreboard().getEntryTeam(p.getName());
-								if (team != null && team.hasPlayer(Bukkit.getOfflinePlayer(cannon.getOwner())))
-									continue;
-							}
-							// get solution
-							if (canFindTargetSolution(cannon, t, t.getCenterLocation(), t.getVelocity())){
-								possibleTargets.add(t);
-							}
-						}
-						//Cannons
-						else if (t.getTargetType() == TargetType.CANNON && cannon.isTargetCannon()) {
-							Cannon tCannon = CannonManager.getCannon(t.getUniqueId());
-							//check if the owner is whitelisted
-							if (tCannon != null && !cannon.isWhitelisted(tCannon.getOwner())){
-								Player p = Bukkit.getPlayer(t.getUniqueId());
-								// check team board
-								if (p != null && Bukkit.getScoreboardManager().getMainScoreboard() != null) {
-									Team team = Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(p);
-									//Team team = Bukkit.getScoreboardManager().getMainScoreboard().getEntryTeam(p.getName());
-									if (team != null && team.hasPlayer(Bukkit.getOfflinePlayer(cannon.getOwner())))
-										continue;
-								}
-								if (canFindTargetSolution(cannon, t, t.getCenterLocation(), t.getVelocity())){
-									possibleTargets.add(t);
-								}
-							}
-						}
-						//Other
-						else if (t.getTargetType() == TargetType.OTHER && cannon.isTargetOther()) {
-							Cannon tCannon = CannonManager.getCannon(t.getUniqueId());
-							//check if the owner is whitelisted
-							if (tCannon != null && !cannon.isWhitelisted(tCannon.getOwner())){
-								Player p = Bukkit.getPlayer(t.getUniqueId());
-								// check team board
-								if (p != null && Bukkit.getScoreboardManager().getMainScoreboard() != null) {
-									Team team = Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(p);
-									//Team team = Bukkit.getScoreboardManager().getMainScoreboard().getEntryTeam(p.getName());
-									if (team != null && team.hasPlayer(Bukkit.getOfflinePlayer(cannon.getOwner())))
-										continue;
-								}
-								if (canFindTargetSolution(cannon, t, t.getCenterLocation(), t.getVelocity())){
-									possibleTargets.add(t);
-								}
-							}
-						}
-                    }
-                    //so we have some targets
-                    if (possibleTargets.size()>0) {
-                        for (Target t : possibleTargets) {
-                            //select one target
-                            if (!cannon.wasSentryTarget(t.getUniqueId())) {
-                                cannon.setSentryTarget(t.getUniqueId());
-                                break;
-                            }
-                        }
-                        if (!cannon.hasSentryEntity()) {
-                            cannon.setSentryTarget(possibleTargets.get(0).getUniqueId());
-                        }
-                    }
-                }
-
-                //find target solution
-                if (cannon.hasSentryEntity()){
-                    Target target = targets.get(cannon.getSentryEntity());
-                    // find exact solution for the cannon
-                    if (calculateTargetSolution(cannon, target, target.getVelocity(), true)){
-						CannonTargetEvent targetEvent = new CannonTargetEvent(cannon, target);
-						Bukkit.getServer().getPluginManager().callEvent(targetEvent);
-						if (!targetEvent.isCancelled()) {
-							cannon.setSentryTarget(target.getUniqueId());
-						} else {
-							//event cancelled
-							plugin.logDebug("can't find solution for target");
-							cannon.setSentryTarget(null);
-						}
-                    }
-                    else {
-                        //no exact solution found for this target. So skip it and try it again in the next run
-                        cannon.setSentryTarget(null);
-                        //cannon.setLastSentryUpdate(System.currentTimeMillis() - cannon.getCannonDesign().getSentryUpdateTime());
-                    }
-                }
-            }
-
-            //aim at the found solution
-            // only update if since the last update some ticks have past (updateSpeed is in ticks = 50ms)
-            if ((cannon.hasSentryEntity() || !cannon.isSentryHomedAfterFiring()) && System.currentTimeMillis() >= cannon.getLastAimed() + cannon.getCannonDesign().getAngleUpdateSpeed()) {
-				// autoaming or fineadjusting
-				if (cannon.isValid()) {
-                    updateAngle(null, cannon, null, InteractAction.adjustSentry);
-                }
+    /**
+     * updates a batch of sentry cannons. The possible targets of all sentries searching for a target in this tick
+     * are collected once in a shared index. If the time budget of the tick is used up, the remaining sentries are
+     * updated in the next tick
+     * @param cannons sentry cannons to update
+     */
+    private void updateSentryCannons(List<Cannon> cannons){
+        long deadline = System.nanoTime() + sentryScheduler.getTickBudget();
+        sentryScheduler.prioritize(cannons);
+
+        SentryTargetIndex targetIndex = new SentryTargetIndex();
+        HashSet<Cannon> searching = new HashSet<Cannon>();
+        for (Cannon cannon : cannons) {
+            if (isSentryUpdateDue(cannon)) {
+                targetIndex.addArea(cannon.getMuzzle(), cannon.getCannonDesign().getSentryMaxRange());
+                searching.add(cannon);
             }
-            //ready to fire. Fire!
-            if (cannon.hasSentryEntity() && cannon.targetInSight() ) {
-                if (cannon.isReadyToFire() && System.currentTimeMillis() > cannon.getSentryLastFiringFailed() + 2000) {
-                    MessageEnum messageEnum = plugin.getFireCannon().sentryFiring(cannon);
-                    if (messageEnum != null) {
-						plugin.logDebug("Sentry " + cannon.getCannonName() + " firing message: " + messageEnum);
-						if (messageEnum.isError()) {
-							cannon.setSentryLastFiringFailed(System.currentTimeMillis());
-							CannonsUtil.playErrorSound(cannon.getMuzzle());
-						}
-					}
-                }
+        }
+        if (!searching.isEmpty())
+            targetIndex.build();
+
+        for (int i = 0; i < cannons.size(); i++) {
+            //at least one sentry is updated in every tick
+            if (i > 0 && System.nanoTime() > deadline) {
+                sentryScheduler.defer(cannons.subList(i, cannons.size()));
+                plugin.logDebug("Sentry time budget exceeded, " + (cannons.size() - i) + " sentries deferred");
+                break;
             }
-
-			//no targets found, return to default angles
-			if (!cannon.hasSentryEntity()){
-				cannon.setAimingYaw(cannon.getHomeYaw());
-				cannon.setAimingPitch(cannon.getHomePitch());
-				cannon.setSentryHomedAfterFiring(false);
-			}
+            Cannon cannon = cannons.get(i);
+            updateSentryCannon(cannon, searching.contains(cannon), targetIndex);
         }
     }
 
     /**
-     * find a possible solution to fire the cannon - this is just an estimation
-     * @param cannon the cannon which is operated
-     * @param loctarget lcoation of the target
-	 * @param targetVelocity how fast the target is moving
-     * @return true if the cannon can fire on this target
+     * returns true if the sentry will search for targets in this update
+     * @param cannon sentry cannon
+     * @return true if a firing solution is calculated
      */
-    private boolean canFindTargetSolution(Cannon cannon, Target target, Location loctarget, Vector targetVelocity){
-        if (!cannon.getWorld().equals(loctarget.getWorld().getUID()))
-            return false;
+    private boolean isSentryUpdateDue(Cannon cannon){
+        return cannon.isChunkLoaded() && cannon.isSentryAutomatic() && cannon.isPaid()
+                && System.currentTimeMillis() > (cannon.getLastSentryUpdate() + cannon.getCannonDesign().getSentryUpdateTime());
+    }
 
-        //plugin.logDebug("old target " + target);
-        Location newTarget = loctarget.clone();
-        if (target.getCenterLocation().distance(cannon.getMuzzle()) > cannon.getCannonDesign().getSentryMaxRange()) {
-			return false;
+    /**
+     * updates loading, targeting, aiming and firing of one sentry cannon
+     * @param cannon sentry cannon to update
+     * @param searchTargets the sentry calculates a new firing solution in this update
+     * @param targetIndex possible targets around the sentry
+     */
+    private void updateSentryCannon(Cannon cannon, boolean searchTargets, SentryTargetIndex targetIndex){
+        //todo test if chunk loading is caused by this function
+        if (!cannon.isChunkLoaded()){
+        	plugin.logDebug("Chunk not loaded " + cannon.getCannonName() + " sentry function deactivated");
+        	return;
 		}
 
+		// ignore cannons which are not in sentry mode
+		if (!cannon.isSentryAutomatic() || !cannon.isPaid())
+			return;
 
-//        double velocity = cannon.getCannonballVelocity();
-//        if (velocity > 0) {
-//            double time = distance / velocity;
-//            //indirect fire needs longer
-//            if (cannon.getCannonDesign().isSentryIndirectFire())
-//                time *= 3.0;
-//            time += (cannon.getCannonDesign().getFuseBurnTime()+cannon.getCannonDesign().getSentryUpdateTime())/20.0;
-//            //plugin.logDebug("time: " + time);
-//            //plugin.logDebug("distance: " + distance);
-//            plugin.logDebug("velocity: " + targetVelocity);
-//
-//            newTarget.add(targetVelocity.multiply(time));
-//        }
-        //plugin.logDebug("new target " + newTarget);
-		int ignoredBlocks = 0;
-
-        if (cannon.isProjectileLoaded()) {
-			Projectile proj = cannon.getLoadedProjectile();
-			if (proj != null)
-				ignoredBlocks = proj.getSentryIgnoredBlocks();
+		// load from chest if the cannon is in automatic mode
+		if (!cannon.isLoaded() && !cannon.isLoading() && !cannon.isFiring() && System.currentTimeMillis() > cannon.getSentryLastLoadingFailed() + 5000) {
+			MessageEnum messageEnum = cannon.reloadFromChests(null, !cannon.getCannonDesign().isAmmoInfiniteForRedstone());
+			if (messageEnum.isError()) {
+				cannon.setSentryLastLoadingFailed(System.currentTimeMillis());
+				CannonsUtil.playErrorSound(cannon.getMuzzle());
+				plugin.logDebug("Sentry " + cannon.getCannonName() + " loading message: " + messageEnum);
+			}
 		}
 
-		if (target.getTargetType() == TargetType.CANNON)
-			ignoredBlocks = 1;
-        if (!CannonsUtil.hasLineOfSight(cannon.getMuzzle(), loctarget, ignoredBlocks)) {
-            return false;
+        // calculate a firing solution
+        if (searchTargets) {
+            cannon.setLastSentryUpdate(System.currentTimeMillis());
+
+            HashMap<UUID, Target> targets = targetIndex.getTargets(cannon.getMuzzle(), cannon.getCannonDesign().getSentryMinRange(), cannon.getCannonDesign().getSentryMaxRange());
+            //the old target is tried first, then targets which were not targeted in the last time
+            ArrayList<Target> possibleTargets = new ArrayList<Target>();
+            ArrayList<Target> recentTargets = new ArrayList<Target>();
+            //old target - is this still valid?
+            if (cannon.hasSentryEntity()) {
+                if (System.currentTimeMillis() > cannon.getSentryTargetingTime() + cannon.getCannonDesign().getSentrySwapTime() || !targets.containsKey(cannon.getSentryEntity())) {
+                    cannon.setSentryTarget(null);
+                }
+                else{
+                    Target target = targets.remove(cannon.getSentryEntity());
+                    motionTracker.update(target);
+                    possibleTargets.add(target);
+                }
+            }
+            for (Target t : targets.values()) {
+                if (!isSentryTarget(cannon, t))
+                    continue;
+                motionTracker.update(t);
+                if (cannon.wasSentryTarget(t.getUniqueId()))
+                    recentTargets.add(t);
+                else
+                    possibleTargets.add(t);
+            }
+            possibleTargets.addAll(recentTargets);
+
+            if (possibleTargets.isEmpty()) {
+                cannon.setSentryTarget(null);
+            }
+            else {
+                applyTargetSolution(cannon, sentrySolver.solve(cannon, possibleTargets));
+            }
         }
 
-        Vector direction = newTarget.toVector().subtract(cannon.getMuzzle().toVector());
-        double yaw = CannonsUtil.vectorToYaw(direction);
-        double pitch = CannonsUtil.vectorToPitch(direction);
-        //can the cannon fire on this player
-        if (cannon.canAimYaw(yaw)) {
-			cannon.setAimingYaw(yaw);
-			cannon.setAimingPitch(pitch);
-            return true;
+        //aim at the found solution
+        // only update if since the last update some ticks have past (updateSpeed is in ticks = 50ms)
+        if ((cannon.hasSentryEntity() || !cannon.isSentryHomedAfterFiring()) && System.currentTimeMillis() >= cannon.getLastAimed() + cannon.getCannonDesign().getAngleUpdateSpeed()) {
+			// autoaming or fineadjusting
+			if (cannon.isValid()) {
+                updateAngle(null, cannon, null, InteractAction.adjustSentry);
+            }
         }
-        return false;
+        //ready to fire. Fire!
+        if (cannon.hasSentryEntity() && cannon.targetInSight() ) {
+            if (cannon.isReadyToFire() && System.currentTimeMillis() > cannon.getSentryLastFiringFailed() + 2000) {
+                MessageEnum messageEnum = plugin.getFireCannon().sentryFiring(cannon);
+                if (messageEnum != null) {
+					plugin.logDebug("Sentry " + cannon.getCannonName() + " firing message: " + messageEnum);
+					if (messageEnum.isError()) {
+						cannon.setSentryLastFiringFailed(System.currentTimeMillis());
+						CannonsUtil.playErrorSound(cannon.getMuzzle());
+					}
+				}
+            }
+        }
+
+		//no targets found, return to default angles
+		if (!cannon.hasSentryEntity()){
+			cannon.setAimingYaw(cannon.getHomeYaw());
+			cannon.setAimingPitch(cannon.getHomePitch());
+			cannon.setSentryHomedAfterFiring(false);
+		}
     }
 
     /**
-     * find exact solution to fire the cannon
+     * checks if the sentry is allowed to fire at this target
      * @param cannon the cannon which is operated
-     * @param target lcoation of the target
-     * @param targetVelocity how fast the target is moving
-     * @return true if a solution was found
+     * @param t possible target
+     * @return true if the target type is enabled and the target is not whitelisted or in the same team
      */
-    private boolean calculateTargetSolution(Cannon cannon, Target target, Vector targetVelocity, boolean addSpread){
-        Location targetLoc = target.getCenterLocation();
-        //aim for the center of the target if there is an area effect of the projectile
-        if (cannon.getLoadedProjectile() != null && (cannon.getLoadedProjectile().getExplosionPower() > 2. || (cannon.getLoadedProjectile().getPlayerDamage() > 1. && cannon.getLoadedProjectile().getPlayerDamageRange() > 2.)))
-            targetLoc = target.getGroundLocation();
-
-        if (!canFindTargetSolution(cannon, target, target.getCenterLocation(), targetVelocity))
-            return false;
-
-        if (cannon.getCannonballVelocity() < 0.01)
-            return false;
-
-        //plugin.logDebug("calculate Target solution for target at: " + targetLoc.toVector());
-
-		//starting values
-		boolean found = false;
-		double step = 10.;
-		int maxInterations = 100;
-		double sign = 1.;
-		if (cannon.getCannonDesign().isSentryIndirectFire()) {
-			sign = -1.;
-			cannon.setAimingPitch(cannon.getMaxVerticalPitch());
-			maxInterations = 500;
-		}
-		// do the first step, because the starting solution is always true
-		cannon.setAimingPitch(cannon.getAimingPitch() - sign*step);
-
-        for (int i=0; i<100; i++){
-			Vector fvector = CannonsUtil.directionToVector(cannon.getAimingYaw(), cannon.getAimingPitch(), cannon.getCannonballVelocity());
-            double diffY = simulateShot(fvector, cannon.getMuzzle(), targetLoc, cannon.getProjectileEntityType(), maxInterations);
-
-			if (!cannon.getCannonDesign().isSentryIndirectFire() && Math.abs(diffY) > 1000.0){
-				// plugin.logDebug("diffY too large: " + diffY);
-				return false;
-			}
-			//direct fire
-			if (diffY < 0) {
-				//below target
-				if (found)
-					step /= 2.;
-				cannon.setAimingPitch(cannon.getAimingPitch() - sign*step);
-			}
-			else {
-				//aiming above target - valid solution
-				found = true;
-				step /= 2.;
-				cannon.setAimingPitch(cannon.getAimingPitch() + sign * step);
-			}
-
-			if (step < cannon.getCannonDesign().getAngleStepSize()) {
-				if (verifyTargetSolution(cannon, target, 2.)) {
-					//can the cannon aim at this solution
-					if (addSpread) {
-						Random rand = new Random();
-						cannon.setAimingPitch(cannon.getAimingPitch() + cannon.getCannonDesign().getSentrySpread() * rand.nextGaussian());
-						cannon.setAimingYaw(cannon.getAimingYaw() + cannon.getCannonDesign().getSentrySpread() * rand.nextGaussian());
-					}
-					if (cannon.canAimPitch(cannon.getAimingPitch()) && cannon.canAimYaw(cannon.getAimingYaw())) {
-						return true;
-					}
-				}
-				// can't aim at this solution
-				return false;
-			}
+    private boolean isSentryTarget(Cannon cannon, Target t){
+        //Monster
+        if (t.getTargetType() == TargetType.MONSTER) {
+            return cannon.isTargetMob();
+        }
+        //Player
+        if (t.getTargetType() == TargetType.PLAYER) {
+            if (!cannon.isTargetPlayer() || cannon.isWhitelisted(t.getUniqueId()))
+                return false;
+            // ignore if target and player are in the same team
+            return !isSameTeam(cannon, t);
+        }
+        //Cannons
+        if ((t.getTargetType() == TargetType.CANNON && cannon.isTargetCannon()) || (t.getTargetType() == TargetType.OTHER && cannon.isTargetOther())) {
+            Cannon tCannon = CannonManager.getCannon(t.getUniqueId());
+            //check if the owner is whitelisted
+            if (tCannon == null || cannon.isWhitelisted(tCannon.getOwner()))
+                return false;
+            // check team board
+            return !isSameTeam(cannon, t);
         }
         return false;
     }
 
-	/**
-	 * verifies if the trajectory is blocked by terrain
-	 * @param cannon the firing cannon
-	 * @param target the target to fire at
-	 * @param maxdistance allowed distance of the target to the impact location
-     * @return true if the target is not blocked or close to the impact
-     */
-	private boolean verifyTargetSolution(Cannon cannon, Target target, double maxdistance){
-		Location muzzle = cannon.getMuzzle();
-		Vector vel = cannon.getTargetVector();
-
-		MovingObject predictor = new MovingObject(muzzle, vel, cannon.getProjectileEntityType());
-		Vector start = muzzle.toVector();
-
-		int maxInterations = 500;
-		double targetDist = 100000000000000.;
-
-		//make a few iterations until we hit something
-		for (int i=0;start.distance(predictor.getLoc()) < cannon.getCannonDesign().getSentryMaxRange()*1.2 && i < maxInterations; i++)
-		{
-			//is target distance shorter than before
-			double newDist = predictor.getLocation().distance(target.getCenterLocation());
-			if (newDist < targetDist){
-				targetDist = newDist;
-			}
-			else{
-				// missed the target
-				return true;
-			}
-			//see if we hit something, but wait until the cannonball is 1 block away (safety first)
-			Block block = predictor.getLocation().getBlock();
-			if (start.distance(predictor.getLoc()) > 1. && !block.isEmpty())
-			{
-				predictor.revertProjectileLocation(false);
-				return CannonsUtil.findSurface(predictor.getLocation(), predictor.getVel()).distance(target.getCenterLocation()) < maxdistance;
-			}
-			predictor.updateProjectileLocation(false);
-		}
-		return false;
-	}
+    private boolean isSameTeam(Cannon cannon, Target t){
+        Player p = Bukkit.getPlayer(t.getUniqueId());
+        if (p != null && Bukkit.getScoreboardManager().getMainScoreboard() != null) {
+            Team team = Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(p);
+            //Team team = Bukkit.getScoreboardManager().getMainScoreboard().getEntryTeam(p.getName());
+            return team != null && team.hasPlayer(Bukkit.getOfflinePlayer(cannon.getOwner()));
+        }
+        return false;
+    }
 
     /**
-     * calculates the height of the projectile at the target distance
-     * @param vector firing vector
-     * @param muzzle start point of the cannonball
-     * @param target target for the cannonball
-     * @return distance how much above/below the projectile will hit
+     * aims the sentry at the calculated solution
+     * @param cannon the cannon which is operated
+     * @param solution solution or a solution without target if no target could be found
      */
-    private double simulateShot(Vector vector, Location muzzle, Location target, EntityType projectileType, int maxInterations){
-        MovingObject cannonball = new MovingObject(muzzle, vector, projectileType);
-        double target_distance = Math.sqrt(Math.pow(target.getX() - muzzle.getX(), 2)+Math.pow(target.getZ()-muzzle.getZ(),2));
-        Vector oldLoc = null;
-        for (int i=0; i<500; i++){
-            cannonball.updateProjectileLocation(false);
-            Vector cLoc = cannonball.getLoc();
-            if (Math.sqrt(Math.pow(cLoc.getX() - muzzle.getX(), 2) + Math.pow(cLoc.getZ()-muzzle.getZ(),2)) > target_distance) {
-                //calculate intersection
-                if (oldLoc == null)
-                    return cLoc.getY() - target.getY();
-                Vector vel = cannonball.getVel().clone();
-                double dist1 = Math.sqrt(vel.getX() * vel.getX() + vel.getY() * vel.getY() + vel.getZ() * vel.getZ());
-                double dist2 = oldLoc.distance(target.toVector());
-                Vector inter = oldLoc.add(vel.multiply(dist2 /dist1));
-                return inter.getY() - target.getY();
-            }
-            oldLoc = cLoc.clone();
+    private void applyTargetSolution(Cannon cannon, SentrySolver.Solution solution){
+        Target target = solution.getTarget();
+        if (target == null) {
+            //no exact solution found. So skip it and try it again in the next run
+            cannon.setSentryTarget(null);
+            return;
+        }
+        CannonTargetEvent targetEvent = new CannonTargetEvent(cannon, target);
+        Bukkit.getServer().getPluginManager().callEvent(targetEvent);
+        if (!targetEvent.isCancelled()) {
+            cannon.setAimingYaw(solution.getYaw());
+            cannon.setAimingPitch(solution.getPitch());
+            cannon.setSentryTarget(target.getUniqueId());
+        } else {
+            //event cancelled
+            plugin.logDebug("can't find solution for target");
+            cannon.setSentryTarget(null);
         }
-        //could not find an intersection
-        return -1000000000000.0;
     }
 
 	/**
@@ -1256,19 +1100,20 @@ public class Aiming {
         Vector vel = cannon.getFiringVector(false, false);
 
         MovingObject predictor = new MovingObject(muzzle, vel, cannon.getProjectileEntityType());
-        Vector start = muzzle.toVector();
+        double startX = muzzle.getX(), startY = muzzle.getY(), startZ = muzzle.getZ();
+        double maxDistance = config.getImitatedPredictorDistance() * config.getImitatedPredictorDistance();
+        int maxIterations = config.getImitatedPredictorIterations();
 
 
         //make a few iterations until we hit something
-        for (int i=0;start.distanceSquared(predictor.getLoc()) < config.getImitatedPredictorDistance() * config.getImitatedPredictorDistance() && i < config.getImitatedPredictorIterations(); i++)
+        for (int i=0;predictor.distanceSquared(startX, startY, startZ) < maxDistance && i < maxIterations; i++)
         {
         	// Ran into an unloaded chunk, terminate further iterations
-			if (!predictor.getLocation().isChunkLoaded()) {
+			if (!predictor.isChunkLoaded()) {
 				return null;
 			}
 			//see if we hit something
-			Block block = predictor.getLocation().getBlock();
-            if (!block.isEmpty())
+            if (!predictor.getBlockType().isAir())
             {
                 predictor.revertProjectileLocation(false);
                 return CannonsUtil.findSurface(predictor.getLocation(), predictor.getVel());
@@ -20,6 +20,8 @@ import at.pavlov.cannons.projectile.ProjectileManager;
 import at.pavlov.cannons.projectile.ProjectileStorage;
 import at.pavlov.cannons.scheduler.FakeBlockHandler;
 import at.pavlov.cannons.scheduler.ProjectileObserver;
+import at.pavlov.cannons.scheduler.RegionTaskScheduler;
+import at.pavlov.cannons.scheduler.TimingWheel;
 import net.milkbowl.vault.economy.Economy;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
@@ -50,6 +52,8 @@ public final class Cannons extends JavaPlugin
 	private final Aiming aiming;
     private final ProjectileObserver observer;
     private final FakeBlockHandler fakeBlockHandler;
+    private final RegionTaskScheduler regionTaskScheduler;
+    private final TimingWheel timingWheel;
 
     private final CannonsAPI cannonsAPI;
     private Economy economy;
@@ -59,6 +63,7 @@ public final class Cannons extends JavaPlugin
 	private final PlayerListener playerListener;
 	private final EntityListener entityListener;
 	private final SignListener signListener;
+	private final ChunkChangeListener chunkChangeListener;
     private final Commands commands;
 	
 	// database
@@ -80,6 +85,8 @@ public final class Cannons extends JavaPlugin
         this.aiming = new Aiming(this);
         this.observer = new ProjectileObserver(this);
         this.fakeBlockHandler = new FakeBlockHandler(this);
+        this.regionTaskScheduler = new RegionTaskScheduler(this);
+        this.timingWheel = new TimingWheel(this);
         this.cannonsAPI = new CannonsAPI(this);
 
         this.persistenceDatabase = new PersistenceDatabase(this);
@@ -88,6 +95,7 @@ public final class Cannons extends JavaPlugin
         this.playerListener = new PlayerListener(this);
         this.entityListener = new EntityListener(this);
         this.signListener = new SignListener(this);
+        this.chunkChangeListener = new ChunkChangeListener(this);
         this.commands = new Commands(this);
 
     }
@@ -98,7 +106,7 @@ public final class Cannons extends JavaPlugin
 
 	public void onDisable()
 	{
-		getServer().getScheduler().cancelTasks(this);
+		regionTaskScheduler.cancelTasks();
 
 		// save database on shutdown
 		logger.info(getLogPrefix() + "Wait until scheduler is finished");
@@ -148,6 +156,7 @@ public final class Cannons extends JavaPlugin
 			pm.registerEvents(playerListener, this);
 			pm.registerEvents(entityListener, this);
 			pm.registerEvents(signListener, this);
+			pm.registerEvents(chunkChangeListener, this);
 			//call command executer
 			getCommand("cannons").setExecutor(commands);
 
@@ -155,7 +164,7 @@ public final class Cannons extends JavaPlugin
 			config.loadConfig();
 
 			// Initialize the database
-			getServer().getScheduler().runTaskAsynchronously(this, new Runnable()
+			regionTaskScheduler.runAsync(new Runnable()
 			{
 				public void run()
 				{
@@ -180,9 +189,10 @@ public final class Cannons extends JavaPlugin
             // setting up the Teleporter
             observer.setupScheduler();
             fakeBlockHandler.setupScheduler();
+            timingWheel.setupScheduler();
 
 			// save cannons
-			getServer().getScheduler().scheduleSyncRepeatingTask(this, new Runnable()
+			regionTaskScheduler.runTimer(new Runnable()
 			{
 				public void run()
 				{
@@ -437,6 +447,14 @@ public final class Cannons extends JavaPlugin
         return fakeBlockHandler;
     }
 
+    public RegionTaskScheduler getRegionTaskScheduler() {
+        return regionTaskScheduler;
+    }
+
+    public TimingWheel getTimingWheel() {
+        return timingWheel;
+    }
+
     public Commands getCommandListener() {
         return commands;
     }
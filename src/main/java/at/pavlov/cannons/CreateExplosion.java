@@ -1,5 +1,6 @@
 package at.pavlov.cannons;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -14,6 +15,7 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.*;
+import org.bukkit.event.block.BlockExplodeEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.inventory.EntityEquipment;
 import org.bukkit.inventory.ItemStack;
@@ -40,7 +42,7 @@ import at.pavlov.cannons.projectile.FlyingProjectile;
 import at.pavlov.cannons.projectile.Projectile;
 import at.pavlov.cannons.projectile.ProjectileProperties;
 import at.pavlov.cannons.utils.CannonsUtil;
-import at.pavlov.cannons.utils.DelayedTask;
+import at.pavlov.cannons.utils.ChunkChangeTracker;
 
 public class CreateExplosion {
 
@@ -130,9 +132,9 @@ public class CreateExplosion {
 		// list of destroy blocks
 		LinkedList<Block> blocklist = new LinkedList<>();
 
-		Vector vel = projectile_entity.getVelocity();
-		Location snowballLoc = projectile_entity.getLocation();
-		World world = projectile_entity.getWorld();
+		Vector vel = cannonball.getActualVelocity(projectile_entity);
+		Location snowballLoc = cannonball.getActualLocation(projectile_entity);
+		World world = snowballLoc.getWorld();
 		Location impactLoc = snowballLoc.clone();
 		this.plugin.logDebug("Projectile impact: " + impactLoc.getBlockX() + ", " + impactLoc.getBlockY() + ", "
 			+ impactLoc.getBlockZ() + " direction: " + impactLoc.getDirection());
@@ -186,18 +188,32 @@ public class CreateExplosion {
 				ProjectilePiercingEvent piercingEvent = new ProjectilePiercingEvent(projectile, impactLoc, blocklist);
 				this.plugin.getServer().getPluginManager().callEvent(piercingEvent);
 
-				// create bukkit event
-				EntityExplodeEvent event = new EntityExplodeEvent(projectile_entity, impactLoc, piercingEvent.getBlockList(), 1.0f);
-				this.plugin.getServer().getPluginManager().callEvent(event);
+				// create bukkit event, virtual projectiles have no entity and use a block explosion
+				boolean cancelled;
+				List<Block> blocks;
+				float yield;
+				if (projectile_entity != null) {
+					EntityExplodeEvent event = new EntityExplodeEvent(projectile_entity, impactLoc, piercingEvent.getBlockList(), 1.0f);
+					this.plugin.getServer().getPluginManager().callEvent(event);
+					cancelled = event.isCancelled();
+					blocks = event.blockList();
+					yield = event.getYield();
+				} else {
+					BlockExplodeEvent event = new BlockExplodeEvent(impactLoc.getBlock(), piercingEvent.getBlockList(), 1.0f);
+					this.plugin.getServer().getPluginManager().callEvent(event);
+					cancelled = event.isCancelled();
+					blocks = event.blockList();
+					yield = event.getYield();
+				}
 
-				this.plugin.logDebug("was the cannons explode event canceled: " + event.isCancelled());
+				this.plugin.logDebug("was the cannons explode event canceled: " + cancelled);
 				// if not canceled break all given blocks
-				if (!event.isCancelled()) {
+				if (!cancelled) {
 					// break water, lava, obsidian if cannon projectile
-					for (int i = 0; i < event.blockList().size(); i++) {
-						Block pBlock = event.blockList().get(i);
+					for (int i = 0; i < blocks.size(); i++) {
+						Block pBlock = blocks.get(i);
 						// break the block, no matter what it is
-						this.BreakBreakNaturally(pBlock, event.getYield());
+						this.BreakBreakNaturally(pBlock, yield);
 					}
 				}
 
@@ -205,7 +221,7 @@ public class CreateExplosion {
 		}
 
 		// add the impact velocity as direction of the impactLoc, direction will be normalized
-		impactLoc.setDirection(projectile_entity.getVelocity());
+		impactLoc.setDirection(vel);
 
 		return impactLoc;
     }
@@ -219,6 +235,7 @@ public class CreateExplosion {
      *            chance to get the block item
      */
     private void BreakBreakNaturally(Block block, float yield) {
+	ChunkChangeTracker.markChanged(block);
 	Random r = new Random();
 	if (r.nextFloat() > yield) {
 	    block.breakNaturally();
@@ -789,11 +806,24 @@ public class CreateExplosion {
      *            cannonball which will explode
      */
     public void detonate(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity, BlockFace hitBlockFace) {
+	this.detonate(cannonball, projectile_entity, hitBlockFace, null);
+    }
+
+    /**
+     * detonated the cannonball
+     *
+     * @param cannonball
+     *            cannonball which will explode
+     * @param hitBlock
+     *            block hit by the cannonball, if null the block is searched along the velocity
+     */
+    public void detonate(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity, BlockFace hitBlockFace, Location hitBlock) {
 	this.plugin.logDebug("detonate cannonball");
 	if (cannonball.hasDetonated()) {
 		return;
 	}
 	cannonball.setHasDetonated(true);
+	cannonball.cancelFuse();
 
 	Projectile projectile = cannonball.getProjectile().clone();
 	Player player = Bukkit.getPlayer(cannonball.getShooterUID());
@@ -808,18 +838,19 @@ public class CreateExplosion {
 
 
 	// find block which caused the shell impact
-	Location impactBlock = CannonsUtil.findFirstBlock(impactLoc, cannonball.getVelocity());
+	Location impactBlock = hitBlock != null ? hitBlock : CannonsUtil.findFirstBlock(impactLoc, cannonball.getVelocity());
 	if (impactBlock != null) {
 	    cannonball.setImpactBlock(impactBlock);
 	    //this.plugin.logDebug("todo: impact block: " + impactBlock.getBlock());
 	}
 
 	// teleport snowball to impact
-	projectile_entity.teleport(impactLoc);
+	if (projectile_entity != null)
+	    projectile_entity.teleport(impactLoc);
 
 	float explosion_power = projectile.getExplosionPower();
 	if (projectile.isExplosionPowerDependsOnVelocity()) {
-	    double vel = projectile_entity.getVelocity().length();
+	    double vel = cannonball.getActualVelocity(projectile_entity).length();
 	    double maxVel = projectile.getVelocity();
 	    double maxEnergy = Math.pow(maxVel, 2);
 	    double energy = Math.pow(vel, 2);
@@ -865,8 +896,7 @@ public class CreateExplosion {
 	    // if the explosion power is negative there will be only a arrow impact sound
 	    if (explosion_power >= 0) {
 			// get affected entities
-			for (Entity cEntity : projectile_entity.getNearbyEntities(explosion_power, explosion_power,
-				explosion_power)) {
+			for (Entity cEntity : this.getNearbyEntities(cannonball, projectile_entity, explosion_power)) {
 				this.addAffectedEntity(cEntity);
 		}
 		// make the explosion
@@ -957,24 +987,19 @@ public class CreateExplosion {
 	    for (int i = 0; i < projectile.getClusterExplosionsAmount(); i++) {
 		double delay = projectile.getClusterExplosionsMinDelay() + Math.random()
 			* (projectile.getClusterExplosionsMaxDelay() - projectile.getClusterExplosionsMinDelay());
-		this.plugin.getServer().getScheduler().scheduleSyncDelayedTask(this.plugin,
-			new DelayedTask(cannonball) {
-			    @Override
-			    public void run(Object object) {
-				FlyingProjectile cannonball = (FlyingProjectile) object;
-				Projectile proj = cannonball.getProjectile();
-
-				Location expLoc = CannonsUtil.randomPointInSphere(cannonball.getImpactLocation(),
-					proj.getClusterExplosionsRadius());
-				// only do if explosion in blocks are allowed
-				if (proj.isClusterExplosionsInBlocks() || expLoc.getBlock().isEmpty()
-					|| (expLoc.getBlock().isLiquid() && proj.isUnderwaterDamage())) {
-				    expLoc.getWorld().createExplosion(expLoc, (float) proj.getClusterExplosionsPower(), projectile.hasProperty(ProjectileProperties.INCENDIARY), true, cannonball.getProjectileEntity());
-				    CreateExplosion.this.sendExplosionToPlayers(null, expLoc,
-					    projectile.getSoundImpact());
-				}
-			    }
-			}, (long) (delay * 20.0));
+		this.plugin.getTimingWheel().schedule(() -> {
+			Projectile proj = cannonball.getProjectile();
+
+			Location expLoc = CannonsUtil.randomPointInSphere(cannonball.getImpactLocation(),
+				proj.getClusterExplosionsRadius());
+			// only do if explosion in blocks are allowed
+			if (proj.isClusterExplosionsInBlocks() || expLoc.getBlock().isEmpty()
+				|| (expLoc.getBlock().isLiquid() && proj.isUnderwaterDamage())) {
+			    expLoc.getWorld().createExplosion(expLoc, (float) proj.getClusterExplosionsPower(), projectile.hasProperty(ProjectileProperties.INCENDIARY), true, cannonball.getProjectileEntity());
+			    CreateExplosion.this.sendExplosionToPlayers(null, expLoc,
+				    projectile.getSoundImpact());
+			}
+		}, cannonball.getImpactLocation(), (long) (delay * 20.0));
 	    }
 	}
     }
@@ -1022,13 +1047,23 @@ public class CreateExplosion {
      * @param cannonball
      *            the flying projectile
      */
+    /**
+     * returns the entities around the projectile, for virtual projectiles around the predicted location
+     */
+    private Collection<Entity> getNearbyEntities(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity, double range) {
+	if (projectile_entity != null)
+	    return projectile_entity.getNearbyEntities(range, range, range);
+	Location loc = cannonball.getActualLocation(null);
+	return loc.getWorld().getNearbyEntities(loc, range, range, range);
+    }
+
     private void damageEntity(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity) {
 	Projectile projectile = cannonball.getProjectile();
 	Location impactLoc = cannonball.getImpactLocation();
 
 	// explosion effect
 	double effectRange = projectile.getPlayerDamageRange();
-	List<Entity> entities = projectile_entity.getNearbyEntities(effectRange, effectRange, effectRange);
+	Collection<Entity> entities = this.getNearbyEntities(cannonball, projectile_entity, effectRange);
 
 	// search all entities to damage
 	Iterator<Entity> it = entities.iterator();
@@ -1075,7 +1110,7 @@ public class CreateExplosion {
 
 	// potion effects
 	effectRange = projectile.getPotionRange();
-	entities = projectile_entity.getNearbyEntities(effectRange, effectRange, effectRange);
+	entities = this.getNearbyEntities(cannonball, projectile_entity, effectRange);
 
 	// apply potion effect
 	it = entities.iterator();
@@ -1125,11 +1160,9 @@ public class CreateExplosion {
 
 	this.plugin.logDebug("Deflection valid");
 	// spawn a new deflected cannnonball
-	this.plugin.getServer().getScheduler().scheduleSyncDelayedTask(this.plugin, new DelayedTask(cannonball) {
+	this.plugin.getTimingWheel().schedule(new Runnable() {
 	    @Override
-	    public void run(Object object) {
-		FlyingProjectile cannonball = (FlyingProjectile) object;
-
+	    public void run() {
 		Projectile projectile = cannonball.getProjectile();
 
 		Random r = new Random();
@@ -1150,7 +1183,7 @@ public class CreateExplosion {
 			cannonball.getShooterUID(), cannonball.getSource(), cannonball.getPlayerlocation(),
 			impactLoc.clone(), vectdeflect, cannonball.getCannonUID(), ProjectileCause.DeflectedProjectile);
 	    }
-	}, 1L);
+	}, cannonball.getImpactLocation(), 1L);
 
 	return true;
     }
@@ -1165,11 +1198,7 @@ public class CreateExplosion {
 	if (!cannonball.getProjectile().isSpawnEnabled())
 	    return;
 
-	this.plugin.getServer().getScheduler().scheduleSyncDelayedTask(this.plugin, new DelayedTask(cannonball) {
-	    @Override
-	    public void run(Object object) {
-		FlyingProjectile cannonball = (FlyingProjectile) object;
-
+	this.plugin.getTimingWheel().schedule(() -> {
 		Projectile projectile = cannonball.getProjectile();
 		Location impactLoc = cannonball.getImpactLocation();
 
@@ -1195,8 +1224,7 @@ public class CreateExplosion {
 				cannonball.getCannonUID(), ProjectileCause.SpawnedProjectile);
 		    }
 		}
-	    }
-	}, 1L);
+	}, cannonball.getImpactLocation(), 1L);
     }
 
     /**
@@ -1225,7 +1253,7 @@ public class CreateExplosion {
 		}
 
 		// apply to rocket
-		final Firework fw = (Firework) world.spawnEntity(projectile_entity.getLocation(), EntityType.FIREWORK);
+		final Firework fw = (Firework) world.spawnEntity(cannonball.getActualLocation(projectile_entity), EntityType.FIREWORK);
 		FireworkMeta meta = fw.getFireworkMeta();
 
 		meta.addEffect(fwb.build());
@@ -1237,7 +1265,7 @@ public class CreateExplosion {
 		/*
 		// detonate firework after 1tick. This seems to works much better than
 		// detonating instantaneously
-		this.plugin.getServer().getScheduler().scheduleSyncDelayedTask(this.plugin, new DelayedTask(fw) {
+		this.plugin.getRegionTaskScheduler().runLater(fw.getLocation(), new DelayedTask(fw) {
 			@Override
 			public void run(Object object) {
 			Firework fw = (Firework) object;
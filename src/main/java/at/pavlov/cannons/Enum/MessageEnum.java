@@ -41,6 +41,7 @@ public enum MessageEnum
 	CmdBuyCannon ("Commands.BuyCannon"),
 	CmdPaidCannon ("Commands.PaidCannon"),
 	CmdClaimCannonsStarted ("Commands.ClaimCannonsStarted"),
+	CmdClaimCannonsProgress ("Commands.ClaimCannonsProgress"),
 	CmdClaimCannonsFinished ("Commands.ClaimCannonsFinished"),
 
 	//Aiming
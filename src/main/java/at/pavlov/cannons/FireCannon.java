@@ -10,7 +10,6 @@ import at.pavlov.cannons.cannon.CannonManager;
 import at.pavlov.cannons.event.CannonFireEvent;
 import at.pavlov.cannons.event.CannonUseEvent;
 import at.pavlov.cannons.utils.CannonsUtil;
-import at.pavlov.cannons.utils.DelayedTask;
 import at.pavlov.cannons.utils.FireTaskWrapper;
 import org.bukkit.*;
 import org.bukkit.block.BlockFace;
@@ -20,7 +19,6 @@ import org.bukkit.entity.*;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 import at.pavlov.cannons.cannon.Cannon;
@@ -285,14 +283,7 @@ public class FireCannon {
             double randomess = 1. + design.getFuseBurnTimeRandomness() * new Random().nextDouble();
             Long delayTime = (long) (randomess * design.getFuseBurnTime() * 20.0 + i*projectile.getAutomaticFiringDelay()*20.0);
             FireTaskWrapper fireTask = new FireTaskWrapper(cannon, playerUid, lastRound, projectileCause);
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new DelayedTask(fireTask)
-            {
-                public void run(Object object)
-                {
-                    FireTaskWrapper fireTask = (FireTaskWrapper) object;
-                    fireTask(fireTask.getCannon(), fireTask.getPlayer(), fireTask.isRemoveCharge(), projectileCause);
-                }
-            }, delayTime);
+            plugin.getTimingWheel().schedule(() -> fireTask(fireTask.getCannon(), fireTask.getPlayer(), fireTask.isRemoveCharge(), projectileCause), cannon.getLocation(), delayTime);
         }
 
         cannon.setChargesRemaining(cannon.getChargesRemaining() - 1);
@@ -355,13 +346,14 @@ public class FireCannon {
 
             org.bukkit.entity.Projectile projectileEntity = plugin.getProjectileManager().spawnProjectile(projectile, shooter, source, playerLoc, firingLoc, vect, cannon.getUID(), projectileCause);
 
-            if (i == 0 && projectile.hasProperty(ProjectileProperties.SHOOTER_AS_PASSENGER) && onlinePlayer != null)
+            if (i == 0 && projectile.hasProperty(ProjectileProperties.SHOOTER_AS_PASSENGER) && onlinePlayer != null && projectileEntity != null)
                 projectileEntity.setPassenger(onlinePlayer);
 
             //confuse all entity which wear no helmets due to the blast of the cannon
-            List<Entity> living = projectileEntity.getNearbyEntities(8, 8, 8);
             //do only once
             if (i == 0) {
+                //virtual projectiles have no entity
+                List<Entity> living = projectileEntity != null ? projectileEntity.getNearbyEntities(8, 8, 8) : new ArrayList<>(world.getNearbyEntities(firingLoc, 8, 8, 8));
                 confuseShooter(living, firingLoc, design.getBlastConfusion());
             }
         }
@@ -409,12 +401,7 @@ public class FireCannon {
             for (Player player: loc.getWorld().getPlayers()) {
                 if (player.getLocation().distanceSquared(c.getMuzzle()) <= Math.pow(player.getSendViewDistance() * 16, 2)) {
                     player.sendBlockChange(c.getMuzzle(), lightBlockData);
-                    new BukkitRunnable() {
-                        @Override
-                        public void run() {
-                            player.sendBlockChange(c.getMuzzle(), airBlockData);
-                        }
-                    }.runTaskLater(Cannons.getPlugin(), 1L);
+                    plugin.getRegionTaskScheduler().runLater(loc, () -> player.sendBlockChange(c.getMuzzle(), airBlockData), 1L);
                 }
             }
         }
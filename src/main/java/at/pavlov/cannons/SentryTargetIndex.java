@@ -0,0 +1,155 @@
+package at.pavlov.cannons;
+
+import at.pavlov.cannons.cannon.Cannon;
+import at.pavlov.cannons.cannon.CannonManager;
+import at.pavlov.cannons.container.Target;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * possible targets (living entities, cannons and targets of other plugins) around a group of sentry cannons. The
+ * index is built once for all sentries updated in the same tick, so sentries close to each other share the entity
+ * lookup and every sentry only checks the cells within its range. An index is not thread safe.
+ */
+public class SentryTargetIndex {
+    //size of one grid cell in blocks
+    private static final int CELL_SHIFT = 4;
+    //the areas of sentries in the same section are merged into one lookup
+    private static final int SECTION_SHIFT = 8;
+
+    private static class Candidate {
+        private final Target target;
+        //the range of the sentry is checked against this location
+        private final Location location;
+        //a living entity is not a target if it is in the same block as the muzzle
+        private final boolean entity;
+
+        private Candidate(Target target, Location location, boolean entity) {
+            this.target = target;
+            this.location = location;
+            this.entity = entity;
+        }
+    }
+
+    //world -> section key -> area which is searched for targets
+    private final Map<World, Map<Long, BoundingBox>> areas = new HashMap<>();
+    //world -> cell key -> targets in this cell
+    private final Map<UUID, Map<Long, List<Candidate>>> cells = new HashMap<>();
+    //every target is only added once, even if it is in several areas
+    private final HashSet<UUID> added = new HashSet<>();
+
+    /**
+     * adds the range of a sentry to the area which is searched for targets
+     * @param center location of the muzzle
+     * @param radius maximum range of the sentry
+     */
+    public void addArea(Location center, double radius) {
+        World world = center.getWorld();
+        if (world == null)
+            return;
+        BoundingBox box = new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+                center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+        long key = getKey(center.getBlockX() >> SECTION_SHIFT, center.getBlockZ() >> SECTION_SHIFT);
+        BoundingBox area = areas.computeIfAbsent(world, k -> new HashMap<>()).get(key);
+        if (area == null)
+            areas.get(world).put(key, box);
+        else
+            area.union(box);
+    }
+
+    /**
+     * collects all possible targets in the added areas
+     */
+    public void build() {
+        for (Map.Entry<World, Map<Long, BoundingBox>> worldAreas : areas.entrySet()) {
+            World world = worldAreas.getKey();
+            for (BoundingBox area : worldAreas.getValue().values()) {
+                for (Entity e : world.getNearbyEntities(area, entity -> entity instanceof LivingEntity && !entity.isDead())) {
+                    if (e instanceof Player) {
+                        Player p = (Player) e;
+                        if (p.getGameMode() == GameMode.CREATIVE || p.hasPermission("cannons.admin.notarget"))
+                            continue;
+                    }
+                    if (added.add(e.getUniqueId()))
+                        add(new Candidate(new Target(e), e.getLocation(), true));
+                }
+
+                Location center = area.getCenter().toLocation(world);
+                for (Cannon cannon : CannonManager.getCannonsInBox(center, area.getWidthX(), area.getHeight(), area.getWidthZ())) {
+                    if (added.add(cannon.getUID()))
+                        add(new Candidate(new Target(cannon), cannon.getCannonDesign().getBarrelBlock(cannon, 0), false));
+                }
+
+                // additional targets from different plugins e.g. ships
+                for (Target target : TargetManager.getTargetsInBox(center, area.getWidthX(), area.getHeight(), area.getWidthZ())) {
+                    if (added.add(target.getUniqueId()))
+                        add(new Candidate(target, target.getCenterLocation(), false));
+                }
+            }
+        }
+    }
+
+    private void add(Candidate candidate) {
+        Location loc = candidate.location;
+        if (loc == null || loc.getWorld() == null)
+            return;
+        cells.computeIfAbsent(loc.getWorld().getUID(), k -> new HashMap<>())
+                .computeIfAbsent(getKey(loc.getBlockX() >> CELL_SHIFT, loc.getBlockZ() >> CELL_SHIFT), k -> new ArrayList<>())
+                .add(candidate);
+    }
+
+    /**
+     * returns all targets within the range of a sentry. The area of the sentry has to be added before the index was built
+     * @param l location of the muzzle
+     * @param minRadius minimum range of the sentry
+     * @param maxRadius maximum range of the sentry
+     * @return targets in range
+     */
+    public HashMap<UUID, Target> getTargets(Location l, int minRadius, int maxRadius) {
+        HashMap<UUID, Target> radiusTargets = new HashMap<UUID, Target>();
+        if (l.getWorld() == null)
+            return radiusTargets;
+        Map<Long, List<Candidate>> worldCells = cells.get(l.getWorld().getUID());
+        if (worldCells == null)
+            return radiusTargets;
+
+        int minCellX = (l.getBlockX() - maxRadius) >> CELL_SHIFT;
+        int maxCellX = (l.getBlockX() + maxRadius) >> CELL_SHIFT;
+        int minCellZ = (l.getBlockZ() - maxRadius) >> CELL_SHIFT;
+        int maxCellZ = (l.getBlockZ() + maxRadius) >> CELL_SHIFT;
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                List<Candidate> cell = worldCells.get(getKey(cx, cz));
+                if (cell == null)
+                    continue;
+                for (Candidate candidate : cell) {
+                    Location loc = candidate.location;
+                    double distSquared = loc.distanceSquared(l);
+                    if (distSquared < minRadius * minRadius || distSquared > maxRadius * maxRadius)
+                        continue;
+                    if (candidate.entity && loc.getBlockX() == l.getBlockX() && loc.getBlockY() == l.getBlockY() && loc.getBlockZ() == l.getBlockZ())
+                        continue;
+                    radiusTargets.put(candidate.target.getUniqueId(), candidate.target);
+                }
+            }
+        }
+        return radiusTargets;
+    }
+
+    private static long getKey(int x, int z) {
+        return ((long) z << 32) | (x & 0xFFFFFFFFL);
+    }
+}
@@ -2,17 +2,67 @@ package at.pavlov.cannons;
 
 import at.pavlov.cannons.container.Target;
 import org.bukkit.Location;
-import org.bukkit.util.Vector;
 
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TargetManager {
-    private static HashMap<UUID, Target> targets = new HashMap<UUID, Target>();
+    //size of one grid cell in blocks
+    private static final int CELL_SHIFT = 4;
 
+    private static class GridCell {
+        private final UUID world;
+        private final long key;
+
+        private GridCell(UUID world, long key) {
+            this.world = world;
+            this.key = key;
+        }
+    }
+
+    private static final ConcurrentHashMap<UUID, Target> targets = new ConcurrentHashMap<UUID, Target>();
+    //world -> cell key -> targets in this cell
+    private static final ConcurrentHashMap<UUID, ConcurrentHashMap<Long, Map<UUID, Target>>> targetGrid = new ConcurrentHashMap<UUID, ConcurrentHashMap<Long, Map<UUID, Target>>>();
+    //world -> all targets in this world, used if a query touches more cells than there are targets
+    private static final ConcurrentHashMap<UUID, Map<UUID, Target>> worldTargets = new ConcurrentHashMap<UUID, Map<UUID, Target>>();
+    //target uid -> cell the target was added to. The location of a target can be changed in place, so the cell is stored
+    private static final ConcurrentHashMap<UUID, GridCell> gridCells = new ConcurrentHashMap<UUID, GridCell>();
+
+    /**
+     * adds a target from a different plugin (e.g. ships). If there is already a target with this UID it is replaced
+     * @param target the new target
+     */
     public static void addTarget(Target target){
-        targets.put(target.getUniqueId(), target);
+        updateTarget(target);
+    }
+
+    /**
+     * updates a target after it has moved. The old entry with the same UID is replaced
+     * @param target target with the new location
+     */
+    public static synchronized void updateTarget(Target target){
+        removeFromGrid(targets.put(target.getUniqueId(), target));
+        addToGrid(target);
+    }
+
+    /**
+     * removes the target with this UID
+     * @param uid UID of the target
+     */
+    public static synchronized void removeTarget(UUID uid){
+        removeFromGrid(targets.remove(uid));
+    }
+
+    /**
+     * removes all targets
+     */
+    public static synchronized void clearTargets(){
+        targets.clear();
+        targetGrid.clear();
+        worldTargets.clear();
+        gridCells.clear();
     }
 
     public static Target getTarget(UUID uid){
@@ -21,9 +71,13 @@ public class TargetManager {
 
     public static HashSet<Target> getTargetsInSphere(Location center, double radius){
         HashSet<Target> newTargetList = new HashSet<Target>();
+        if (center.getWorld() == null)
+            return newTargetList;
 
-        for (Target target : targets.values()) {
-            if (target.getCenterLocation().distanceSquared(center) < radius * radius)
+        UUID world = center.getWorld().getUID();
+        for (Target target : getCandidates(world, center.getX() - radius, center.getZ() - radius, center.getX() + radius, center.getZ() + radius)) {
+            Location loc = target.getCenterLocation();
+            if (world.equals(loc.getWorld().getUID()) && loc.distanceSquared(center) < radius * radius)
                 newTargetList.add(target);
         }
         return newTargetList;
@@ -31,13 +85,85 @@ public class TargetManager {
 
     public static HashSet<Target> getTargetsInBox(Location center, double lengthX, double lengthY, double lengthZ){
         HashSet<Target> newTargetList = new HashSet<Target>();
+        if (center.getWorld() == null)
+            return newTargetList;
 
-        for (Target target : targets.values()) {
-            Location newLoc = target.getCenterLocation();
-            Vector box = newLoc.subtract(center).toVector();
-            if (newLoc.getWorld().equals(center.getWorld().getUID()) && Math.abs(box.getX())<lengthX/2 && Math.abs(box.getY())<lengthY/2 && Math.abs(box.getZ())<lengthZ/2)
+        UUID world = center.getWorld().getUID();
+        for (Target target : getCandidates(world, center.getX() - lengthX/2, center.getZ() - lengthZ/2, center.getX() + lengthX/2, center.getZ() + lengthZ/2)) {
+            Location loc = target.getCenterLocation();
+            if (world.equals(loc.getWorld().getUID()) && Math.abs(loc.getX() - center.getX())<lengthX/2 && Math.abs(loc.getY() - center.getY())<lengthY/2 && Math.abs(loc.getZ() - center.getZ())<lengthZ/2)
                 newTargetList.add(target);
         }
         return newTargetList;
     }
+
+    /**
+     * returns all targets in the cells touched by this area. If the area covers more cells than there are targets
+     * in the world, all targets of the world are returned
+     */
+    private static Iterable<Target> getCandidates(UUID world, double minX, double minZ, double maxX, double maxZ){
+        Map<UUID, Target> inWorld = worldTargets.get(world);
+        ConcurrentHashMap<Long, Map<UUID, Target>> cells = targetGrid.get(world);
+        if (inWorld == null || cells == null)
+            return new HashSet<Target>();
+
+        int minCellX = (int) Math.floor(minX) >> CELL_SHIFT;
+        int maxCellX = (int) Math.floor(maxX) >> CELL_SHIFT;
+        int minCellZ = (int) Math.floor(minZ) >> CELL_SHIFT;
+        int maxCellZ = (int) Math.floor(maxZ) >> CELL_SHIFT;
+        if ((long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1) > inWorld.size())
+            return inWorld.values();
+
+        HashSet<Target> candidates = new HashSet<Target>();
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                Map<UUID, Target> cell = cells.get(getCellKey(cx, cz));
+                if (cell != null)
+                    candidates.addAll(cell.values());
+            }
+        }
+        return candidates;
+    }
+
+    private static void addToGrid(Target target){
+        Location loc = target.getCenterLocation();
+        if (loc == null || loc.getWorld() == null)
+            return;
+        UUID world = loc.getWorld().getUID();
+        long key = getCellKey(loc);
+        targetGrid.computeIfAbsent(world, k -> new ConcurrentHashMap<Long, Map<UUID, Target>>())
+                .computeIfAbsent(key, k -> new ConcurrentHashMap<UUID, Target>())
+                .put(target.getUniqueId(), target);
+        worldTargets.computeIfAbsent(world, k -> new ConcurrentHashMap<UUID, Target>()).put(target.getUniqueId(), target);
+        gridCells.put(target.getUniqueId(), new GridCell(world, key));
+    }
+
+    private static void removeFromGrid(Target target){
+        if (target == null)
+            return;
+        //remove by the stored cell, the location of the target might have changed since it was added
+        GridCell gridCell = gridCells.remove(target.getUniqueId());
+        if (gridCell == null)
+            return;
+        ConcurrentHashMap<Long, Map<UUID, Target>> cells = targetGrid.get(gridCell.world);
+        if (cells != null) {
+            Map<UUID, Target> cell = cells.get(gridCell.key);
+            if (cell != null) {
+                cell.remove(target.getUniqueId(), target);
+                if (cell.isEmpty())
+                    cells.remove(gridCell.key);
+            }
+        }
+        Map<UUID, Target> inWorld = worldTargets.get(gridCell.world);
+        if (inWorld != null)
+            inWorld.remove(target.getUniqueId(), target);
+    }
+
+    private static long getCellKey(Location loc){
+        return getCellKey(loc.getBlockX() >> CELL_SHIFT, loc.getBlockZ() >> CELL_SHIFT);
+    }
+
+    private static long getCellKey(int cellX, int cellZ){
+        return ((long) cellZ << 32) | (cellX & 0xFFFFFFFFL);
+    }
 }
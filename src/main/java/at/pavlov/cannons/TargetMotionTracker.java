@@ -0,0 +1,101 @@
+package at.pavlov.cannons;
+
+import at.pavlov.cannons.container.Target;
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * tracks the movement of sentry targets over several sentry updates. The velocity of a target is smoothed, so a
+ * sentry can lead a target which keeps moving in the same direction without following every small step. Only the
+ * horizontal movement is tracked, the vertical velocity of an entity is mostly gravity while it stands on the ground.
+ */
+public class TargetMotionTracker {
+    //weight of a new sample in the smoothed velocity
+    private static final double SMOOTHING = 0.5;
+    //faster movements are teleports and are not tracked (blocks per tick)
+    private static final double MAX_SPEED = 2.0;
+    //targets which were not seen for this time are removed
+    private static final long EXPIRE_TIME = 5000;
+
+    private static class Motion {
+        private final double x, z;
+        private final double velX, velZ;
+        private final long time;
+
+        private Motion(double x, double z, double velX, double velZ, long time) {
+            this.x = x;
+            this.z = z;
+            this.velX = velX;
+            this.velZ = velZ;
+            this.time = time;
+        }
+    }
+
+    //target uid -> last tracked motion
+    private final ConcurrentHashMap<UUID, Motion> motions = new ConcurrentHashMap<>();
+
+    /**
+     * adds the current position and velocity of the target to its motion
+     * @param target target seen by a sentry
+     */
+    public void update(Target target) {
+        Location loc = target.getCenterLocation();
+        if (loc == null)
+            return;
+        long now = System.currentTimeMillis();
+        motions.compute(target.getUniqueId(), (uid, last) -> {
+            //several sentries can see the same target in one tick
+            if (last != null && now - last.time < 50)
+                return last;
+
+            //the reported velocity of a player is not updated while walking, the movement since the last update is used instead
+            double velX, velZ;
+            if (last != null && now - last.time < EXPIRE_TIME) {
+                double ticks = (now - last.time) / 50.0;
+                velX = (loc.getX() - last.x) / ticks;
+                velZ = (loc.getZ() - last.z) / ticks;
+            }
+            else {
+                Vector velocity = target.getVelocity();
+                velX = velocity != null ? velocity.getX() : 0.0;
+                velZ = velocity != null ? velocity.getZ() : 0.0;
+            }
+            if (velX * velX + velZ * velZ > MAX_SPEED * MAX_SPEED)
+                return new Motion(loc.getX(), loc.getZ(), 0.0, 0.0, now);
+            if (last == null)
+                return new Motion(loc.getX(), loc.getZ(), velX, velZ, now);
+            return new Motion(loc.getX(), loc.getZ(),
+                    last.velX + SMOOTHING * (velX - last.velX), last.velZ + SMOOTHING * (velZ - last.velZ), now);
+        });
+    }
+
+    /**
+     * returns the smoothed horizontal velocity of the target
+     * @param uid uid of the target
+     * @return velocity in blocks per tick, zero if the target is not tracked
+     */
+    public Vector getVelocity(UUID uid) {
+        Motion motion = motions.get(uid);
+        if (motion == null)
+            return new Vector(0, 0, 0);
+        return new Vector(motion.velX, 0.0, motion.velZ);
+    }
+
+    /**
+     * removes targets which were not seen for some time
+     */
+    public void cleanUp() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<UUID, Motion>> iter = motions.entrySet().iterator();
+        while (iter.hasNext()) {
+            if (now > iter.next().getValue().time + EXPIRE_TIME)
+                iter.remove();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package at.pavlov.cannons.cannon;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * open addressing map from packed block coordinates to a cannon UID. A lookup does not allocate anything, which
+ * matters because most looked up blocks are not part of a cannon. Writes are synchronized, reads are lock free.
+ * A removed entry keeps its key with an empty value, the table is rebuilt when it is too full.
+ */
+class BlockKeyMap
+{
+    //no block key is packed to this value, the coordinates would be far outside of the world border
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final class Table
+    {
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<UUID> values;
+        private final int mask;
+
+        private Table(int capacity)
+        {
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++)
+                keys.set(i, EMPTY);
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    //slots with a key, including removed entries
+    private int usedSlots;
+
+    /**
+     * returns the UID stored for this block
+     * @param key packed block coordinates
+     * @return UID or null if there is none
+     */
+    UUID get(long key)
+    {
+        Table t = table;
+        for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask)
+        {
+            long k = t.keys.get(i);
+            if (k == key)
+                return t.values.get(i);
+            if (k == EMPTY)
+                return null;
+        }
+    }
+
+    /**
+     * stores the UID for this block
+     * @param key packed block coordinates
+     * @param value UID of the cannon
+     */
+    synchronized void put(long key, UUID value)
+    {
+        //keep the load below 50%, so there are always empty slots to end a lookup
+        if ((usedSlots + 1) * 2 > table.keys.length())
+            rebuild();
+        Table t = table;
+        for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask)
+        {
+            long k = t.keys.get(i);
+            if (k == key)
+            {
+                t.values.set(i, value);
+                return;
+            }
+            if (k == EMPTY)
+            {
+                //the value is visible before the key
+                t.values.set(i, value);
+                t.keys.set(i, key);
+                usedSlots++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * removes the entry if it is stored for this UID
+     * @param key packed block coordinates
+     * @param value UID of the cannon
+     */
+    synchronized void remove(long key, UUID value)
+    {
+        Table t = table;
+        for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask)
+        {
+            long k = t.keys.get(i);
+            if (k == key)
+            {
+                t.values.compareAndSet(i, value, null);
+                return;
+            }
+            if (k == EMPTY)
+                return;
+        }
+    }
+
+    /**
+     * copies the entries into a new table without the removed entries
+     */
+    private void rebuild()
+    {
+        Table old = table;
+        int entries = 0;
+        for (int i = 0; i < old.keys.length(); i++)
+            if (old.values.get(i) != null)
+                entries++;
+        int capacity = INITIAL_CAPACITY;
+        while ((entries + 1) * 4 > capacity)
+            capacity <<= 1;
+
+        Table t = new Table(capacity);
+        for (int i = 0; i < old.keys.length(); i++)
+        {
+            UUID value = old.values.get(i);
+            if (value == null)
+                continue;
+            long key = old.keys.get(i);
+            int j = hash(key) & t.mask;
+            while (t.keys.get(j) != EMPTY)
+                j = (j + 1) & t.mask;
+            t.values.set(j, value);
+            t.keys.set(j, key);
+        }
+        usedSlots = entries;
+        table = t;
+    }
+
+    private static int hash(long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
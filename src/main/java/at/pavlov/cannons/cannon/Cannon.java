@@ -9,11 +9,13 @@ import at.pavlov.cannons.event.CannonUseEvent;
 import at.pavlov.cannons.Enum.InteractAction;
 import at.pavlov.cannons.projectile.ProjectileStorage;
 import at.pavlov.cannons.utils.CannonsUtil;
+import at.pavlov.cannons.utils.ChunkChangeTracker;
 import org.apache.commons.lang3.Validate;
 import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.Sign;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.type.WallSign;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
@@ -23,7 +25,6 @@ import org.bukkit.material.Attachable;
 import org.bukkit.util.Vector;
 
 import at.pavlov.cannons.Enum.MessageEnum;
-import at.pavlov.cannons.container.SimpleBlock;
 import at.pavlov.cannons.utils.InventoryManagement;
 import at.pavlov.cannons.projectile.Projectile;
 import at.pavlov.cannons.sign.CannonSign;
@@ -43,6 +44,8 @@ public class Cannon
     private Vector offset;
     // world of the cannon
     private UUID world;
+    // absolute block positions of the cannon, created when needed
+    private CannonGeometry geometry;
     // if the cannon is on a ship, the operation might be limited (e.g smaller angles to adjust the cannon)
     private boolean onShip;
     // with which velocity the canno is moving (set by other plugins)
@@ -225,7 +228,10 @@ public class Cannon
      */
     public Location getLocation()
     {
-        return design.getAllCannonBlocks(this).get(0);
+        Vector location = getGeometry().getLocation();
+        if (location == null)
+            return design.getAllCannonBlocks(this).get(0);
+        return location.toLocation(getWorldBukkit());
     }
 
     /**
@@ -234,7 +240,10 @@ public class Cannon
      */
     public Location getMuzzle()
     {
-          return design.getMuzzle(this);
+        Vector muzzle = getGeometry().getMuzzle();
+        if (muzzle == null)
+            return design.getMuzzle(this);
+        return muzzle.toLocation(getWorldBukkit());
     }
 
     /**
@@ -244,11 +253,10 @@ public class Cannon
     public Location getRandomBarrelBlock()
     {
         Random r = new Random();
-        List<Location> barrel = design.getBarrelBlocks(this);
-        if (barrel.size() > 0)
-            return barrel.get(r.nextInt(barrel.size()));
-        List<Location> all = design.getAllCannonBlocks(this);
-        return all.get(r.nextInt(all.size()));
+        int barrelCount = design.getBarrelBlockCount(this);
+        if (barrelCount > 0)
+            return design.getBarrelBlock(this, r.nextInt(barrelCount));
+        return getCannonBlock(r.nextInt(design.getCannonBlockCount(cannonDirection))).getLocation();
     }
 
 
@@ -886,12 +894,14 @@ public class Cannon
      */
     public void show()
     {
-        for (SimpleBlock cBlock : design.getAllCannonBlocks(this.getCannonDirection()))
+        for (int i = 0; i < design.getCannonBlockCount(cannonDirection); i++)
         {
-            Block wBlock = cBlock.toLocation(getWorldBukkit(), offset).getBlock();
+            Block wBlock = getCannonBlock(i);
             //todo check show
-            wBlock.setBlockData(cBlock.getBlockData());
+            wBlock.setBlockData(design.getCannonBlockData(cannonDirection, i));
             //wBlock.setBlockData(cBlock);
+            //precomputed trajectories crossing this chunk are checked again
+            ChunkChangeTracker.markChanged(wBlock);
         }
     }
 
@@ -901,9 +911,9 @@ public class Cannon
     public void hide()
     {
         //remove only attachable block
-        for (SimpleBlock cBlock : design.getAllCannonBlocks(this.getCannonDirection()))
+        for (int i = 0; i < design.getCannonBlockCount(cannonDirection); i++)
         {
-            Block wBlock = cBlock.toLocation(getWorldBukkit(), offset).getBlock();
+            Block wBlock = getCannonBlock(i);
             //if that block is not loaded
             if (wBlock == null) return;
 
@@ -911,24 +921,38 @@ public class Cannon
             {
                 //System.out.println("hide " + wBlock.getType());
                 wBlock.setType(Material.AIR);
+                ChunkChangeTracker.markChanged(wBlock);
                 //wBlock.setData((byte) 0, false);
             }
         }
 
         //remove all
-        for (SimpleBlock cBlock : design.getAllCannonBlocks(this.getCannonDirection()))
+        for (int i = 0; i < design.getCannonBlockCount(cannonDirection); i++)
         {
-            Block wBlock = cBlock.toLocation(getWorldBukkit(), offset).getBlock();
+            Block wBlock = getCannonBlock(i);
 
             if (wBlock.getType() != Material.AIR)
             {
                 wBlock.setType(Material.AIR);
+                ChunkChangeTracker.markChanged(wBlock);
                // wBlock.setData((byte) 0, false);
             }
         }
     }
 
 
+    /**
+     * returns the world block of a cannon block without creating the block list of the design
+     * @param index index of the block in the design
+     * @return block in the world
+     */
+    private Block getCannonBlock(int index)
+    {
+        long key = design.getCannonBlockKey(cannonDirection, index);
+        return getWorldBukkit().getBlockAt(CannonsUtil.getBlockKeyX(key) + offset.getBlockX(), CannonsUtil.getBlockKeyY(key) + offset.getBlockY(),
+                CannonsUtil.getBlockKeyZ(key) + offset.getBlockZ());
+    }
+
     /**
      * breaks all cannon blocks of the cannon
      */
@@ -950,17 +974,22 @@ public class Cannon
     public boolean isCannonBlock(Block block)
     {
         if (getWorld().equals(block.getWorld().getUID())){
-            for (SimpleBlock designBlock : design.getAllCannonBlocks(cannonDirection))
-            {
-                if (designBlock.compareMaterialAndLoc(block, offset))
-                {
-                    return true;
-                }
-            }
+            BlockData designBlock = getGeometry().getBlockData(block.getX(), block.getY(), block.getZ());
+            return designBlock != null && block.getType().equals(designBlock.getMaterial());
         }
         return false;
     }
 
+    /**
+     * checks if all blocks of the cannon still match its design, e.g. a partly dismantled cannon is not complete
+     * @return true if all blocks match the design
+     */
+    public boolean isComplete()
+    {
+        World world = getWorldBukkit();
+        return world != null && getGeometry().isComplete(world);
+    }
+
     /**
      * return true if this block can be destroyed, false if it is protected
      * @param block - location of the block
@@ -968,14 +997,7 @@ public class Cannon
      */
     public boolean isDestructibleBlock(Location block)
     {
-        for (Location loc : design.getDestructibleBlocks(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isDestructibleBlock(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
     /**
@@ -987,14 +1009,7 @@ public class Cannon
      */
     public boolean isLoadingBlock(Location block)
     {
-        for (Location loc : design.getLoadingInterface(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isLoadingInterface(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
 
@@ -1006,14 +1021,7 @@ public class Cannon
      */
     public boolean isChestInterface(Location block)
     {
-        for (Location loc : design.getChestsAndSigns(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isChestOrSign(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
     /**
@@ -1025,27 +1033,11 @@ public class Cannon
      */
     public boolean isCannonSign(Location loc)
     {
-        if (!(loc.getBlock().getBlockData() instanceof WallSign)) {
+        // compare location first, it is cheaper than reading the block
+        if (!isWorld(loc) || !getGeometry().isChestOrSign(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ()))
             return false;
-        }
 
-        CannonBlocks cannonBlocks  = this.getCannonDesign().getCannonBlockMap().get(this.getCannonDirection());
-        if (cannonBlocks != null)
-        {
-            for (SimpleBlock cannonblock : cannonBlocks.getChestsAndSigns())
-            {
-                // compare location
-                if (cannonblock.toLocation(this.getWorldBukkit(),this.offset).equals(loc))
-                {
-                    //Block block = loc.getBlock();
-                    //compare and data
-                    //only the two lower bits of the bytes are important for the direction (delays are not interessting here)
-                    //if (cannonblock.getData() == block.getData() || block.getData() == -1 || cannonblock.getData() == -1 )
-                    return true;
-                }
-            }
-        }
-        return false;
+        return loc.getBlock().getBlockData() instanceof WallSign;
     }
 
     /**
@@ -1056,14 +1048,7 @@ public class Cannon
      */
     public boolean isRightClickTrigger(Location block)
     {
-        for (Location loc : design.getRightClickTrigger(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isRightClickTrigger(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
     /**
@@ -1074,14 +1059,7 @@ public class Cannon
      */
     public boolean isRestoneTrigger(Location block)
     {
-        for (Location loc : design.getRedstoneTrigger(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isRedstoneTrigger(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
     /**
@@ -1092,14 +1070,7 @@ public class Cannon
      */
     public boolean isRedstoneTorchInterface(Location block)
     {
-        for (Location loc : design.getRedstoneTorches(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isRedstoneTorch(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
     /**
@@ -1110,14 +1081,7 @@ public class Cannon
      */
     public boolean isRedstoneWireInterface(Location block)
     {
-        for (Location loc : design.getRedstoneWireAndRepeater(this))
-        {
-            if (loc.equals(block))
-            {
-                return true;
-            }
-        }
-        return false;
+        return isWorld(block) && getGeometry().isRedstoneWireOrRepeater(block.getBlockX(), block.getBlockY(), block.getBlockZ());
     }
 
     /**
@@ -1129,23 +1093,7 @@ public class Cannon
      */
     public boolean isRedstoneRepeaterInterface(Location loc)
     {
-        CannonBlocks cannonBlocks  = this.getCannonDesign().getCannonBlockMap().get(this.getCannonDirection());
-        if (cannonBlocks != null)
-        {
-            for (SimpleBlock cannonblock : cannonBlocks.getRedstoneWiresAndRepeater())
-            {
-                // compare location
-                if (cannonblock.toLocation(this.getWorldBukkit(),this.offset).equals(loc))
-                {
-                    Block block = loc.getBlock();
-                    //compare and data
-                    //only the two lower bits of the bytes are important for the direction (delays are not interessting here)
-                    //if (cannonblock.getData() == block.getData() %4 || block.getData() == -1 || cannonblock.getData() == -1 )
-                    return true;
-                }
-            }
-        }
-        return false;
+        return isWorld(loc) && getGeometry().isRedstoneWireOrRepeater(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
     }
 
     /**
@@ -1166,7 +1114,8 @@ public class Cannon
      */
     public Location getFirstCannonBlock()
     {
-        return design.getAllCannonBlocks(cannonDirection).get(0).toLocation(getWorldBukkit(), offset);
+        //the location of the cannon is its first block
+        return getLocation();
 
     }
 
@@ -1247,6 +1196,40 @@ public class Cannon
         }
     }
 
+    /**
+     * returns the absolute block positions of the cannon, they are created again after the cannon has changed
+     * @return geometry of the cannon
+     */
+    private CannonGeometry getGeometry()
+    {
+        CannonGeometry geo = geometry;
+        if (geo == null)
+        {
+            geo = new CannonGeometry(design == null ? null : design.getCannonBlockMap().get(cannonDirection), offset);
+            geometry = geo;
+        }
+        return geo;
+    }
+
+    /**
+     * returns true if the location is in the world of the cannon
+     * @param loc location to check
+     * @return true if the location is in the same world
+     */
+    private boolean isWorld(Location loc)
+    {
+        return loc.getWorld() != null && loc.getWorld().getUID().equals(world);
+    }
+
+    /**
+     * drops the cached block positions and updates the location indices after the cannon was moved, rotated or changed
+     */
+    private void geometryChanged()
+    {
+        geometry = null;
+        CannonManager.updateCannonLocation(this);
+    }
+
     /**
      * updates the location of the cannon
      * @param moved - how far the cannon has been moved
@@ -1254,6 +1237,7 @@ public class Cannon
     public void move(Vector moved)
     {
         offset.add(moved);
+        geometryChanged();
         this.hasUpdated();
     }
 
@@ -1289,6 +1273,7 @@ public class Cannon
             for (int i = 0; i<=(-angle)%90; i++)
                 cannonDirection = CannonsUtil.roatateFaceOpposite(cannonDirection);
         }
+        geometryChanged();
         this.hasUpdated();
 
     }
@@ -1790,7 +1775,9 @@ public class Cannon
 
     public void setCannonName(String name)
     {
+        String oldName = this.cannonName;
         this.cannonName = name;
+        CannonManager.updateCannonName(this, oldName);
         this.hasUpdated();
     }
 
@@ -1802,6 +1789,7 @@ public class Cannon
     public void setCannonDirection(BlockFace cannonDirection)
     {
         this.cannonDirection = cannonDirection;
+        geometryChanged();
         this.hasUpdated();
     }
 
@@ -1813,6 +1801,7 @@ public class Cannon
     public void setWorld(UUID world)
     {
         this.world = world;
+        geometryChanged();
         this.hasUpdated();
     }
 
@@ -1926,7 +1915,9 @@ public class Cannon
 
     public void setOwner(UUID owner)
     {
+        UUID oldOwner = this.owner;
         this.owner = owner;
+        CannonManager.updateCannonOwner(this, oldOwner);
         this.hasUpdated();
     }
 
@@ -1949,12 +1940,14 @@ public class Cannon
     public void setOffset(Vector offset)
     {
         this.offset = offset;
+        geometryChanged();
         this.hasUpdated();
     }
 
     public void setCannonDesign(CannonDesign design)
     {
         this.design = design;
+        geometryChanged();
         this.hasUpdated();
     }
 
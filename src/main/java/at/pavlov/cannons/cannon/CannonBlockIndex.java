@@ -0,0 +1,97 @@
+package at.pavlov.cannons.cannon;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import at.pavlov.cannons.utils.CannonsUtil;
+import org.bukkit.Location;
+
+
+/**
+ * exact map of all blocks occupied by registered cannons. The key is the packed block coordinate, the value the
+ * UID of the cannon. Entries are updated whenever a cannon is registered, moved or removed, so a lookup never
+ * returns a stale cannon.
+ */
+class CannonBlockIndex
+{
+    //world -> packed block coordinates -> cannon UID
+    private final ConcurrentHashMap<UUID, BlockKeyMap> worldMap = new ConcurrentHashMap<>();
+    //cannon UID -> blocks the cannon currently occupies
+    private final ConcurrentHashMap<UUID, IndexEntry> entryMap = new ConcurrentHashMap<>();
+
+    private static class IndexEntry
+    {
+        private final UUID world;
+        private final long[] blockKeys;
+
+        private IndexEntry(UUID world, long[] blockKeys)
+        {
+            this.world = world;
+            this.blockKeys = blockKeys;
+        }
+    }
+
+    /**
+     * adds all blocks of this cannon or updates them if the cannon was moved or rotated
+     * @param cannon cannon to add
+     */
+    synchronized void add(Cannon cannon)
+    {
+        remove(cannon);
+        if (cannon.getWorld() == null || cannon.getOffset() == null || cannon.getCannonDesign() == null)
+            return;
+
+        List<Location> blocks = cannon.getCannonDesign().getAllCannonBlocks(cannon);
+        long[] blockKeys = new long[blocks.size()];
+        BlockKeyMap blockMap = worldMap.computeIfAbsent(cannon.getWorld(), k -> new BlockKeyMap());
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            blockKeys[i] = CannonsUtil.toBlockKey(blocks.get(i));
+            blockMap.put(blockKeys[i], cannon.getUID());
+        }
+        entryMap.put(cannon.getUID(), new IndexEntry(cannon.getWorld(), blockKeys));
+    }
+
+    /**
+     * removes all blocks of this cannon. Blocks which were taken over by another cannon are not touched
+     * @param cannon cannon to remove
+     */
+    synchronized void remove(Cannon cannon)
+    {
+        IndexEntry entry = entryMap.remove(cannon.getUID());
+        if (entry == null)
+            return;
+
+        BlockKeyMap blockMap = worldMap.get(entry.world);
+        if (blockMap == null)
+            return;
+        for (long key : entry.blockKeys)
+            blockMap.remove(key, cannon.getUID());
+    }
+
+    /**
+     * removes all entries
+     */
+    synchronized void clear()
+    {
+        worldMap.clear();
+        entryMap.clear();
+    }
+
+    /**
+     * returns the UID of the cannon occupying this block
+     * @param world world of the block
+     * @param x x coordinate of the block
+     * @param y y coordinate of the block
+     * @param z z coordinate of the block
+     * @return UID of the cannon or null if the block is not part of a cannon
+     */
+    UUID get(UUID world, int x, int y, int z)
+    {
+        BlockKeyMap blockMap = worldMap.get(world);
+        if (blockMap == null)
+            return null;
+        return blockMap.get(CannonsUtil.toBlockKey(x, y, z));
+    }
+}
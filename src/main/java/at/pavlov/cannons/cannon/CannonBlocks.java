@@ -1,7 +1,11 @@
 package at.pavlov.cannons.cannon;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import at.pavlov.cannons.utils.CannonsUtil;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.util.Vector;
 
 import at.pavlov.cannons.container.SimpleBlock;
@@ -20,6 +24,259 @@ class CannonBlocks
     private ArrayList<Vector> rightClickTrigger = new ArrayList<Vector>();
     private ArrayList<Vector> firingIndicator = new ArrayList<Vector>();
     private ArrayList<Vector> destructibleBlocks = new ArrayList<Vector>();
+
+    //packed relative coordinates of the blocks, created by pack(). The lists above are only used to load the design
+    private Packed allCannonBlockKeys = new Packed(new long[0], null);
+    private Packed barrelKeys = new Packed(new long[0], null);
+    private Packed chestsAndSignsKeys = new Packed(new long[0], null);
+    private Packed redstoneTorchKeys = new Packed(new long[0], null);
+    private Packed redstoneWiresAndRepeaterKeys = new Packed(new long[0], null);
+    private Packed redstoneTriggerKeys = new Packed(new long[0], null);
+    private Packed rightClickTriggerKeys = new Packed(new long[0], null);
+    private Packed firingIndicatorKeys = new Packed(new long[0], null);
+    private Packed destructibleKeys = new Packed(new long[0], null);
+    private boolean packed;
+
+    /**
+     * packed coordinates of one block list. The design order is kept, a sorted copy is used for the binary search
+     */
+    private static final class Packed
+    {
+        //design order
+        private final long[] keys;
+        //block data in design order, null if the list has no block data
+        private final BlockData[] data;
+        private final long[] sortedKeys;
+        //index in keys of the sorted keys
+        private final int[] sortedIndex;
+
+        private Packed(long[] keys, BlockData[] data)
+        {
+            this.keys = keys;
+            this.data = data;
+            Integer[] order = new Integer[keys.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+            sortedKeys = new long[keys.length];
+            sortedIndex = new int[keys.length];
+            for (int i = 0; i < order.length; i++)
+            {
+                sortedKeys[i] = keys[order[i]];
+                sortedIndex[i] = order[i];
+            }
+        }
+
+        private int indexOf(long key)
+        {
+            int i = Arrays.binarySearch(sortedKeys, key);
+            return i >= 0 ? sortedIndex[i] : -1;
+        }
+
+        private Vector toVector(int index)
+        {
+            return new Vector(CannonsUtil.getBlockKeyX(keys[index]), CannonsUtil.getBlockKeyY(keys[index]), CannonsUtil.getBlockKeyZ(keys[index]));
+        }
+
+        private ArrayList<Vector> toVectors()
+        {
+            ArrayList<Vector> list = new ArrayList<Vector>(keys.length);
+            for (int i = 0; i < keys.length; i++)
+                list.add(toVector(i));
+            return list;
+        }
+
+        private ArrayList<SimpleBlock> toBlocks()
+        {
+            ArrayList<SimpleBlock> list = new ArrayList<SimpleBlock>(keys.length);
+            for (int i = 0; i < keys.length; i++)
+                list.add(new SimpleBlock(CannonsUtil.getBlockKeyX(keys[i]), CannonsUtil.getBlockKeyY(keys[i]), CannonsUtil.getBlockKeyZ(keys[i]), data[i]));
+            return list;
+        }
+    }
+
+    /**
+     * packs the relative coordinates of all block lists and drops the lists. Has to be called after the lists are complete,
+     * afterwards the getters return new lists created from the packed coordinates and the lists can't be changed anymore.
+     * Frequent callers should use the indexed accessors, they don't create any objects
+     */
+    public void pack()
+    {
+    	packed = true;
+    	allCannonBlockKeys = packBlocks(allCannonBlocks);
+    	barrelKeys = packVectors(barrelBlocks);
+    	chestsAndSignsKeys = packBlocks(chestsAndSigns);
+    	redstoneTorchKeys = packVectors(redstoneTorches);
+    	redstoneWiresAndRepeaterKeys = packBlocks(redstoneWiresAndRepeater);
+    	redstoneTriggerKeys = packVectors(redstoneTrigger);
+    	rightClickTriggerKeys = packVectors(rightClickTrigger);
+    	firingIndicatorKeys = packVectors(firingIndicator);
+    	destructibleKeys = packVectors(destructibleBlocks);
+
+    	allCannonBlocks = null;
+    	barrelBlocks = null;
+    	chestsAndSigns = null;
+    	redstoneTorches = null;
+    	redstoneWiresAndRepeater = null;
+    	redstoneTrigger = null;
+    	rightClickTrigger = null;
+    	firingIndicator = null;
+    	destructibleBlocks = null;
+    }
+
+    /**
+     * packs relative block coordinates into a long
+     * @param x relative x coordinate
+     * @param y relative y coordinate
+     * @param z relative z coordinate
+     * @return packed coordinates
+     */
+    public static long toKey(int x, int y, int z)
+    {
+    	return CannonsUtil.toBlockKey(x, y, z);
+    }
+
+    private static Packed packBlocks(List<SimpleBlock> blocks)
+    {
+    	long[] keys = new long[blocks.size()];
+    	BlockData[] data = new BlockData[keys.length];
+    	for (int i = 0; i < keys.length; i++)
+    	{
+    		SimpleBlock block = blocks.get(i);
+    		keys[i] = toKey(block.getLocX(), block.getLocY(), block.getLocZ());
+    		data[i] = block.getBlockData();
+    	}
+    	return new Packed(keys, data);
+    }
+
+    private static Packed packVectors(List<Vector> vectors)
+    {
+    	long[] keys = new long[vectors.size()];
+    	for (int i = 0; i < keys.length; i++)
+    	{
+    		Vector vect = vectors.get(i);
+    		keys[i] = toKey(vect.getBlockX(), vect.getBlockY(), vect.getBlockZ());
+    	}
+    	return new Packed(keys, null);
+    }
+
+    private static boolean contains(Packed packed, long key)
+    {
+    	return packed.indexOf(key) >= 0;
+    }
+
+    /**
+     * returns the number of packed cannon blocks
+     * @return number of cannon blocks
+     */
+    public int getCannonBlockCount()
+    {
+    	return allCannonBlockKeys.keys.length;
+    }
+
+    /**
+     * returns the packed relative coordinates of a cannon block without creating the block list
+     * @param index index of the block in the design order
+     * @return packed coordinates
+     */
+    public long getCannonBlockKey(int index)
+    {
+    	return allCannonBlockKeys.keys[index];
+    }
+
+    /**
+     * returns the block data of a cannon block without creating the block list
+     * @param index index of the block in the design order
+     * @return block data of the block
+     */
+    public BlockData getCannonBlockData(int index)
+    {
+    	return allCannonBlockKeys.data[index];
+    }
+
+    /**
+     * returns the number of packed barrel blocks
+     * @return number of barrel blocks
+     */
+    public int getBarrelBlockCount()
+    {
+    	return barrelKeys.keys.length;
+    }
+
+    /**
+     * returns the packed relative coordinates of a barrel block without creating the block list
+     * @param index index of the block in the design order
+     * @return packed coordinates
+     */
+    public long getBarrelBlockKey(int index)
+    {
+    	return barrelKeys.keys[index];
+    }
+
+    /**
+     * the lists can't be changed after they are packed, the packed coordinates would be stale
+     */
+    private void checkNotPacked()
+    {
+    	if (packed)
+    		throw new IllegalStateException("the block lists of a cannon design can't be changed after they are packed");
+    }
+
+    /**
+     * returns the block data of the cannon block at this relative position
+     * @param key packed relative coordinates
+     * @return block data or null if this is no cannon block
+     */
+    public BlockData getBlockData(long key)
+    {
+    	int i = allCannonBlockKeys.indexOf(key);
+    	return i >= 0 ? allCannonBlockKeys.data[i] : null;
+    }
+
+    public boolean isCannonBlock(long key)
+    {
+    	return contains(allCannonBlockKeys, key);
+    }
+
+    public boolean isBarrelBlock(long key)
+    {
+    	return contains(barrelKeys, key);
+    }
+
+    public boolean isChestOrSign(long key)
+    {
+    	return contains(chestsAndSignsKeys, key);
+    }
+
+    public boolean isRedstoneTorch(long key)
+    {
+    	return contains(redstoneTorchKeys, key);
+    }
+
+    public boolean isRedstoneWireOrRepeater(long key)
+    {
+    	return contains(redstoneWiresAndRepeaterKeys, key);
+    }
+
+    public boolean isRedstoneTrigger(long key)
+    {
+    	return contains(redstoneTriggerKeys, key);
+    }
+
+    public boolean isRightClickTrigger(long key)
+    {
+    	return contains(rightClickTriggerKeys, key);
+    }
+
+    public boolean isFiringIndicator(long key)
+    {
+    	return contains(firingIndicatorKeys, key);
+    }
+
+    public boolean isDestructibleBlock(long key)
+    {
+    	return contains(destructibleKeys, key);
+    }
     
 
     /**
@@ -29,14 +286,7 @@ class CannonBlocks
      */
     public boolean isLoadingInterface(Vector loc)
     {
-    	for (Vector loadingBlock : barrelBlocks)
-    	{
-    		if (loc.equals(loadingBlock))
-    		{
-    			return true;
-    		}
-    	}
-    	return false;
+    	return isBarrelBlock(toKey(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ()));
     }
     
     /**
@@ -46,10 +296,10 @@ class CannonBlocks
     public Vector getFiringTrigger()
     {
     	//return one tigger
-    	if (rightClickTrigger != null && rightClickTrigger.size() > 0)
-    		return rightClickTrigger.get(0);	
-    	if (redstoneTrigger != null && redstoneTrigger.size() > 0)
-        	return redstoneTrigger.get(0);
+    	if (rightClickTriggerKeys.keys.length > 0)
+    		return rightClickTriggerKeys.toVector(0);
+    	if (redstoneTriggerKeys.keys.length > 0)
+        	return redstoneTriggerKeys.toVector(0);
         return null;
     }
     
@@ -71,82 +321,91 @@ class CannonBlocks
 	}
 	public ArrayList<SimpleBlock> getAllCannonBlocks()
 	{
-		return allCannonBlocks;
+		return allCannonBlocks != null ? allCannonBlocks : allCannonBlockKeys.toBlocks();
 	}
 	public void setAllCannonBlocks(ArrayList<SimpleBlock> allCannonBlocks)
 	{
+		checkNotPacked();
 		this.allCannonBlocks = allCannonBlocks;
 	}
 	public ArrayList<Vector> getBarrelBlocks()
 	{
-		return barrelBlocks;
+		return barrelBlocks != null ? barrelBlocks : barrelKeys.toVectors();
 	}
 	public void setBarrel (ArrayList<Vector> barrelBlocks)
 	{
+		checkNotPacked();
 		this.barrelBlocks = barrelBlocks;
 	}
 	public ArrayList<Vector> getRedstoneTorches()
 	{
-		return redstoneTorches;
+		return redstoneTorches != null ? redstoneTorches : redstoneTorchKeys.toVectors();
 	}
 	public void setRedstoneTorches(ArrayList<Vector> redstoneTorches)
 	{
+		checkNotPacked();
 		this.redstoneTorches = redstoneTorches;
 	}
 	public ArrayList<Vector> getRedstoneTrigger()
 	{
-		return redstoneTrigger;
+		return redstoneTrigger != null ? redstoneTrigger : redstoneTriggerKeys.toVectors();
 	}
 	public void setRedstoneTrigger(ArrayList<Vector> redstoneTrigger)
 	{
+		checkNotPacked();
 		this.redstoneTrigger = redstoneTrigger;
 	}
 	public ArrayList<Vector> getRightClickTrigger()
 	{
-		return rightClickTrigger;
+		return rightClickTrigger != null ? rightClickTrigger : rightClickTriggerKeys.toVectors();
 	}
 	public void setRightClickTrigger(ArrayList<Vector> rightClickTrigger)
 	{
+		checkNotPacked();
 		this.rightClickTrigger = rightClickTrigger;
 	}
 
 	public ArrayList<SimpleBlock> getChestsAndSigns()
 	{
-		return chestsAndSigns;
+		return chestsAndSigns != null ? chestsAndSigns : chestsAndSignsKeys.toBlocks();
 	}
 
 	public void setChestsAndSigns(ArrayList<SimpleBlock> chestsAndSigns)
 	{
+		checkNotPacked();
 		this.chestsAndSigns = chestsAndSigns;
 	}
 
 	public ArrayList<SimpleBlock> getRedstoneWiresAndRepeater()
 	{
-		return redstoneWiresAndRepeater;
+		return redstoneWiresAndRepeater != null ? redstoneWiresAndRepeater : redstoneWiresAndRepeaterKeys.toBlocks();
 	}
 
 	public void setRedstoneWiresAndRepeater(ArrayList<SimpleBlock> redstoneWiresAndRepeater)
 	{
+		checkNotPacked();
 		this.redstoneWiresAndRepeater = redstoneWiresAndRepeater;
 	}
 
 	public ArrayList<Vector> getFiringIndicator()
 	{
-		return firingIndicator;
+		return firingIndicator != null ? firingIndicator : firingIndicatorKeys.toVectors();
 	}
 
 	public void setFiringIndicator(ArrayList<Vector> firingIndicator)
 	{
+		checkNotPacked();
 		this.firingIndicator = firingIndicator;
 	}
 
 	public ArrayList<Vector> getDestructibleBlocks()
 	{
-		return destructibleBlocks;
+		return destructibleBlocks != null ? destructibleBlocks : destructibleKeys.toVectors();
 	}
 
 	public void setDestructibleBlocks(ArrayList<Vector> destructibleBlocks)
 	{
+		checkNotPacked();
 		this.destructibleBlocks = destructibleBlocks;
 	}
     
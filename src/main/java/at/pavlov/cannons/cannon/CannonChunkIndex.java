@@ -0,0 +1,169 @@
+package at.pavlov.cannons.cannon;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import at.pavlov.cannons.utils.CannonsUtil;
+import org.bukkit.util.Vector;
+
+
+/**
+ * spatial index of all registered cannons. Each cannon is stored in every chunk its block bounding box touches,
+ * so location based lookups only have to check the cannons of the chunks they hit.
+ */
+class CannonChunkIndex
+{
+    //world -> chunk key -> cannons with at least one block in this chunk
+    private final ConcurrentHashMap<UUID, ConcurrentHashMap<Long, Map<UUID, Cannon>>> worldMap = new ConcurrentHashMap<>();
+    //cannon -> chunks the cannon is currently stored in
+    private final ConcurrentHashMap<UUID, IndexEntry> entryMap = new ConcurrentHashMap<>();
+
+    private static class IndexEntry
+    {
+        private final UUID world;
+        private final long[] chunkKeys;
+
+        private IndexEntry(UUID world, long[] chunkKeys)
+        {
+            this.world = world;
+            this.chunkKeys = chunkKeys;
+        }
+    }
+
+    /**
+     * adds the cannon to the index or updates the entry if the cannon was moved or rotated
+     * @param cannon cannon to add
+     */
+    synchronized void add(Cannon cannon)
+    {
+        remove(cannon);
+        if (cannon.getWorld() == null || cannon.getOffset() == null || cannon.getCannonDesign() == null)
+            return;
+
+        // bounding box of all cannon blocks, the offset is included since all queries are based on it
+        Vector offset = cannon.getOffset();
+        int minX = offset.getBlockX();
+        int maxX = minX;
+        int minZ = offset.getBlockZ();
+        int maxZ = minZ;
+        CannonDesign design = cannon.getCannonDesign();
+        for (int b = 0; b < design.getCannonBlockCount(cannon.getCannonDirection()); b++)
+        {
+            long key = design.getCannonBlockKey(cannon.getCannonDirection(), b);
+            int x = CannonsUtil.getBlockKeyX(key) + offset.getBlockX();
+            int z = CannonsUtil.getBlockKeyZ(key) + offset.getBlockZ();
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minZ = Math.min(minZ, z);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        int minChunkX = minX >> 4;
+        int maxChunkX = maxX >> 4;
+        int minChunkZ = minZ >> 4;
+        int maxChunkZ = maxZ >> 4;
+        long[] chunkKeys = new long[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)];
+        ConcurrentHashMap<Long, Map<UUID, Cannon>> chunkMap = worldMap.computeIfAbsent(cannon.getWorld(), k -> new ConcurrentHashMap<>());
+        int i = 0;
+        for (int cx = minChunkX; cx <= maxChunkX; cx++)
+        {
+            for (int cz = minChunkZ; cz <= maxChunkZ; cz++)
+            {
+                long key = getChunkKey(cx, cz);
+                chunkKeys[i++] = key;
+                chunkMap.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(cannon.getUID(), cannon);
+            }
+        }
+        entryMap.put(cannon.getUID(), new IndexEntry(cannon.getWorld(), chunkKeys));
+    }
+
+    /**
+     * removes the cannon from all chunks it was stored in
+     * @param cannon cannon to remove
+     */
+    synchronized void remove(Cannon cannon)
+    {
+        IndexEntry entry = entryMap.remove(cannon.getUID());
+        if (entry == null)
+            return;
+
+        ConcurrentHashMap<Long, Map<UUID, Cannon>> chunkMap = worldMap.get(entry.world);
+        if (chunkMap == null)
+            return;
+        for (long key : entry.chunkKeys)
+        {
+            Map<UUID, Cannon> cannons = chunkMap.get(key);
+            if (cannons == null)
+                continue;
+            cannons.remove(cannon.getUID());
+            if (cannons.isEmpty())
+                chunkMap.remove(key);
+        }
+    }
+
+    /**
+     * returns true if this cannon is stored in the index
+     * @param cannon cannon to check
+     * @return true if the cannon is in the index
+     */
+    boolean contains(Cannon cannon)
+    {
+        return entryMap.containsKey(cannon.getUID());
+    }
+
+    /**
+     * removes all cannons from the index
+     */
+    synchronized void clear()
+    {
+        worldMap.clear();
+        entryMap.clear();
+    }
+
+    /**
+     * returns all cannons which have blocks in the chunk of the given block
+     * @param world world of the block
+     * @param x x coordinate of the block
+     * @param z z coordinate of the block
+     * @return cannons in this chunk
+     */
+    HashSet<Cannon> getCannons(UUID world, int x, int z)
+    {
+        return getCannons(world, x, z, x, z);
+    }
+
+    /**
+     * returns all cannons which have blocks in the chunks touched by the given area
+     * @param world world of the area
+     * @param minX min x block coordinate
+     * @param minZ min z block coordinate
+     * @param maxX max x block coordinate
+     * @param maxZ max z block coordinate
+     * @return cannons in these chunks
+     */
+    HashSet<Cannon> getCannons(UUID world, int minX, int minZ, int maxX, int maxZ)
+    {
+        HashSet<Cannon> cannons = new HashSet<>();
+        ConcurrentHashMap<Long, Map<UUID, Cannon>> chunkMap = worldMap.get(world);
+        if (chunkMap == null)
+            return cannons;
+
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++)
+        {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++)
+            {
+                Map<UUID, Cannon> chunkCannons = chunkMap.get(getChunkKey(cx, cz));
+                if (chunkCannons != null)
+                    cannons.addAll(chunkCannons.values());
+            }
+        }
+        return cannons;
+    }
+
+    private static long getChunkKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+}
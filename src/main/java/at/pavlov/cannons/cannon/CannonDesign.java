@@ -6,6 +6,7 @@ import java.util.List;
 
 import at.pavlov.cannons.container.SoundHolder;
 import at.pavlov.cannons.projectile.ProjectileStorage;
+import at.pavlov.cannons.utils.CannonsUtil;
 import org.bukkit.Location;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.BlockData;
@@ -259,6 +260,39 @@ public class CannonDesign
     }
 
 
+    /**
+     * returns the number of cannon blocks for this direction
+     * @param cannonDirection - the direction the cannon is facing
+     * @return number of cannon blocks
+     */
+    public int getCannonBlockCount(BlockFace cannonDirection)
+    {
+        CannonBlocks cannonBlocks  = cannonBlockMap.get(cannonDirection);
+        return cannonBlocks != null ? cannonBlocks.getCannonBlockCount() : 0;
+    }
+
+    /**
+     * returns the packed relative coordinates of one cannon block, see CannonsUtil.getBlockKeyX. Does not create the block list
+     * @param cannonDirection - the direction the cannon is facing
+     * @param index index of the block, below getCannonBlockCount
+     * @return packed relative coordinates
+     */
+    public long getCannonBlockKey(BlockFace cannonDirection, int index)
+    {
+        return cannonBlockMap.get(cannonDirection).getCannonBlockKey(index);
+    }
+
+    /**
+     * returns the block data of one cannon block. Does not create the block list
+     * @param cannonDirection - the direction the cannon is facing
+     * @param index index of the block, below getCannonBlockCount
+     * @return block data of the block
+     */
+    public BlockData getCannonBlockData(BlockFace cannonDirection, int index)
+    {
+        return cannonBlockMap.get(cannonDirection).getCannonBlockData(index);
+    }
+
     /**
      * returns a list of all cannonBlocks
      * @param cannon
@@ -270,15 +304,22 @@ public class CannonDesign
         List<Location> locList = new ArrayList<Location>();
         if (cannonBlocks != null)
         {
-            for (SimpleBlock block : cannonBlocks.getAllCannonBlocks())
-            {
-                Vector vect = block.toVector();
-                locList.add(vect.clone().add(cannon.getOffset()).toLocation(cannon.getWorldBukkit()));
-            }
+            for (int i = 0; i < cannonBlocks.getCannonBlockCount(); i++)
+                locList.add(toLocation(cannonBlocks.getCannonBlockKey(i), cannon));
         }
         return locList;
     }
 
+    /**
+     * converts packed relative coordinates to the location in the world
+     */
+    private static Location toLocation(long key, Cannon cannon)
+    {
+        Vector offset = cannon.getOffset();
+        return new Location(cannon.getWorldBukkit(), CannonsUtil.getBlockKeyX(key) + offset.getX(),
+                CannonsUtil.getBlockKeyY(key) + offset.getY(), CannonsUtil.getBlockKeyZ(key) + offset.getZ());
+    }
+
     /**
      * returns a list of all destructible blocks
      * @param cannon
@@ -329,10 +370,8 @@ public class CannonDesign
         List<Location> locList = new ArrayList<Location>();
         if (cannonBlocks != null)
         {
-            for (Vector vect : cannonBlocks.getBarrelBlocks())
-            {
-                locList.add(vect.clone().add(cannon.getOffset()).toLocation(cannon.getWorldBukkit()));
-            }
+            for (int i = 0; i < cannonBlocks.getBarrelBlockCount(); i++)
+                locList.add(toLocation(cannonBlocks.getBarrelBlockKey(i), cannon));
         }
         return locList;
     }
@@ -348,13 +387,33 @@ public class CannonDesign
         List<Location> locList = new ArrayList<Location>();
         if (cannonBlocks != null)
         {
-            for (Vector vect : cannonBlocks.getBarrelBlocks())
-            {
-                locList.add(vect.clone().add(cannon.getOffset()).toLocation(cannon.getWorldBukkit()));
-            }
+            for (int i = 0; i < cannonBlocks.getBarrelBlockCount(); i++)
+                locList.add(toLocation(cannonBlocks.getBarrelBlockKey(i), cannon));
         }
         return locList;
     }
+
+    /**
+     * returns the number of barrel blocks of the cannon
+     * @param cannon
+     * @return number of barrel blocks
+     */
+    public int getBarrelBlockCount(Cannon cannon)
+    {
+        CannonBlocks cannonBlocks  = cannonBlockMap.get(cannon.getCannonDirection());
+        return cannonBlocks != null ? cannonBlocks.getBarrelBlockCount() : 0;
+    }
+
+    /**
+     * returns one barrel block of the cannon without creating the list of all barrel blocks
+     * @param cannon
+     * @param index index of the block, below getBarrelBlockCount
+     * @return location of the barrel block
+     */
+    public Location getBarrelBlock(Cannon cannon, int index)
+    {
+        return toLocation(cannonBlockMap.get(cannon.getCannonDirection()).getBarrelBlockKey(index), cannon);
+    }
     
     /**
      * returns a list of all right click trigger blocks
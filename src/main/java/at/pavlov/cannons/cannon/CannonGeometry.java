@@ -0,0 +1,140 @@
+package at.pavlov.cannons.cannon;
+
+import at.pavlov.cannons.utils.CannonsUtil;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+
+
+/**
+ * absolute block positions of a cannon for every block role. A block is converted to the relative position in the
+ * design and looked up in the packed coordinates of the design, so no objects are created for the check.
+ * The geometry is immutable and has to be created again if the cannon is moved, rotated or gets a new design.
+ */
+class CannonGeometry
+{
+    private final CannonBlocks cannonBlocks;
+    private final int offsetX;
+    private final int offsetY;
+    private final int offsetZ;
+    //first block of the cannon
+    private final Vector location;
+    private final Vector muzzle;
+
+    CannonGeometry(CannonBlocks cannonBlocks, Vector offset)
+    {
+        this.cannonBlocks = cannonBlocks;
+        this.offsetX = offset.getBlockX();
+        this.offsetY = offset.getBlockY();
+        this.offsetZ = offset.getBlockZ();
+
+        if (cannonBlocks == null)
+        {
+            this.location = null;
+            this.muzzle = null;
+            return;
+        }
+
+        if (cannonBlocks.getCannonBlockCount() > 0)
+        {
+            long first = cannonBlocks.getCannonBlockKey(0);
+            this.location = new Vector(CannonsUtil.getBlockKeyX(first), CannonsUtil.getBlockKeyY(first), CannonsUtil.getBlockKeyZ(first)).add(offset);
+        }
+        else
+            this.location = null;
+        this.muzzle = cannonBlocks.getMuzzle() == null ? null : cannonBlocks.getMuzzle().clone().add(offset);
+    }
+
+    private long toKey(int x, int y, int z)
+    {
+        return CannonBlocks.toKey(x - offsetX, y - offsetY, z - offsetZ);
+    }
+
+    /**
+     * returns the position of the first cannon block
+     * @return position of the cannon, null if the design has no blocks
+     */
+    Vector getLocation()
+    {
+        return location;
+    }
+
+    /**
+     * returns the position of the muzzle
+     * @return position of the muzzle, null if the design has no blocks for this direction
+     */
+    Vector getMuzzle()
+    {
+        return muzzle;
+    }
+
+    /**
+     * returns the block data of the design for this block
+     * @return block data or null if the block is not part of the cannon
+     */
+    BlockData getBlockData(int x, int y, int z)
+    {
+        return cannonBlocks != null ? cannonBlocks.getBlockData(toKey(x, y, z)) : null;
+    }
+
+    /**
+     * checks if all blocks in the world match the material of the design
+     * @param world world of the cannon
+     * @return true if all blocks match
+     */
+    boolean isComplete(World world)
+    {
+        if (cannonBlocks == null)
+            return false;
+        for (int i = 0; i < cannonBlocks.getCannonBlockCount(); i++)
+        {
+            long key = cannonBlocks.getCannonBlockKey(i);
+            int x = CannonsUtil.getBlockKeyX(key) + offsetX;
+            int y = CannonsUtil.getBlockKeyY(key) + offsetY;
+            int z = CannonsUtil.getBlockKeyZ(key) + offsetZ;
+            if (world.getBlockAt(x, y, z).getType() != cannonBlocks.getCannonBlockData(i).getMaterial())
+                return false;
+        }
+        return true;
+    }
+
+    boolean isCannonBlock(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isCannonBlock(toKey(x, y, z));
+    }
+
+    boolean isDestructibleBlock(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isDestructibleBlock(toKey(x, y, z));
+    }
+
+    boolean isLoadingInterface(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isBarrelBlock(toKey(x, y, z));
+    }
+
+    boolean isChestOrSign(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isChestOrSign(toKey(x, y, z));
+    }
+
+    boolean isRightClickTrigger(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isRightClickTrigger(toKey(x, y, z));
+    }
+
+    boolean isRedstoneTrigger(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isRedstoneTrigger(toKey(x, y, z));
+    }
+
+    boolean isRedstoneTorch(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isRedstoneTorch(toKey(x, y, z));
+    }
+
+    boolean isRedstoneWireOrRepeater(int x, int y, int z)
+    {
+        return cannonBlocks != null && cannonBlocks.isRedstoneWireOrRepeater(toKey(x, y, z));
+    }
+}
@@ -3,20 +3,16 @@ package at.pavlov.cannons.cannon;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.Enum.BreakCause;
 import at.pavlov.cannons.container.ItemHolder;
 import at.pavlov.cannons.dao.LoadWhitelistTask;
 import at.pavlov.cannons.event.CannonDestroyedEvent;
+import at.pavlov.cannons.scheduler.ClaimCannonsTask;
 import at.pavlov.cannons.utils.CannonsUtil;
 import at.pavlov.cannons.utils.DelayedTask;
 import at.pavlov.cannons.utils.RemoveTaskWrapper;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
 import org.apache.commons.lang3.Validate;
 import org.bukkit.*;
 import org.bukkit.block.Block;
@@ -27,7 +23,6 @@ import org.bukkit.util.Vector;
 import at.pavlov.cannons.config.Config;
 import at.pavlov.cannons.Enum.MessageEnum;
 import at.pavlov.cannons.config.UserMessages;
-import at.pavlov.cannons.container.SimpleBlock;
 import at.pavlov.cannons.event.CannonAfterCreateEvent;
 import at.pavlov.cannons.event.CannonBeforeCreateEvent;
 
@@ -36,9 +31,11 @@ public class CannonManager
 {
     private static final ConcurrentHashMap<UUID, Cannon> cannonList = new ConcurrentHashMap<UUID, Cannon>();
     private static final ConcurrentHashMap<String, UUID> cannonNameMap = new ConcurrentHashMap<String, UUID>();
-    private static final Cache<Location, Cannon> cannonCache = CacheBuilder.newBuilder()
-            .expireAfterAccess(60, TimeUnit.SECONDS)
-            .build();
+    //name prefix -> lowest suffix which might be free, all smaller suffixes are taken
+    private static final ConcurrentHashMap<String, Integer> nameSuffixMap = new ConcurrentHashMap<String, Integer>();
+    private static final CannonChunkIndex chunkIndex = new CannonChunkIndex();
+    private static final CannonBlockIndex blockIndex = new CannonBlockIndex();
+    private static final ConcurrentHashMap<UUID, Set<UUID>> ownerMap = new ConcurrentHashMap<UUID, Set<UUID>>();
 
     private final Cannons plugin;
     private final UserMessages userMessages;
@@ -68,6 +65,7 @@ public class CannonManager
             {
                 removeCannon(next, false, false, cause, false, false);
                 iter.remove();
+                removeFromIndices(next);
             }
         }
     }
@@ -177,7 +175,7 @@ public class CannonManager
 
         //delay the remove task, so it fits to the sound
         RemoveTaskWrapper task = new RemoveTaskWrapper(cannon, breakCannon, canExplode, cause, removeEntry, ignoreInvalid);
-        plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new DelayedTask(task) {
+        plugin.getRegionTaskScheduler().runLater(cannon.getLocation(), new DelayedTask(task) {
             public void run(Object object) {
                 RemoveTaskWrapper task = (RemoveTaskWrapper) object;
                 Cannon cannon = task.getCannon();
@@ -222,7 +220,7 @@ public class CannonManager
                 //remove from database
                 plugin.getPersistenceDatabase().deleteCannon(cannon.getUID());
                 //remove cannon name
-                cannonNameMap.remove(cannon.getCannonName());
+                removeFromNameIndex(cannon.getCannonName(), cannon);
                 //remove sentry
                 if (cannon.getCannonDesign().isSentry())
                     plugin.getAiming().removeSentryCannon(cannon.getUID());
@@ -231,7 +229,7 @@ public class CannonManager
 
                 //remove entry
                 if (task.removeEntry())
-                    cannonList.remove(cannon.getUID());
+                    unregisterCannon(cannon);
 
             }
         }, delay);
@@ -248,10 +246,7 @@ public class CannonManager
         if (name == null)
             return false;
 
-        // try to find this in the map
-        //there is no such cannon name
-        //there is such a cannon name
-        return cannonNameMap.get(name) == null;
+        return !cannonNameMap.containsKey(name);
     }
 
     /**
@@ -271,13 +266,15 @@ public class CannonManager
         else
             name = "cannon";
 
-
-        for (int i = 1; i < Integer.MAX_VALUE; i++)
+        //start at the lowest suffix which might be free
+        for (int i = nameSuffixMap.getOrDefault(name, 1); i < Integer.MAX_VALUE; i++)
         {
             String cannonName = name + " " + i;
 
             if (isCannonNameUnique(cannonName))
             {
+                //this name is taken when the cannon is added to the list
+                nameSuffixMap.put(name, i + 1);
                 return cannonName;
             }
         }
@@ -333,8 +330,7 @@ public class CannonManager
 
         // add cannon to the list
         cannonList.put(cannon.getUID(), cannon);
-        //add cannon name to the list
-        cannonNameMap.put(cannon.getCannonName(), cannon.getUID());
+        addToIndices(cannon);
         if (cannon.getCannonDesign().isSentry())
             plugin.getAiming().addSentryCannon(cannon.getUID());
 
@@ -348,8 +344,7 @@ public class CannonManager
         }
         plugin.logDebug("added cannon " + cannon.getCannonName());
 
-        LoadWhitelistTask loadWhitelistTask = new LoadWhitelistTask(cannon.getUID());
-        loadWhitelistTask.runTaskAsynchronously(plugin);
+        plugin.getRegionTaskScheduler().runAsync(new LoadWhitelistTask(cannon.getUID()));
     }
 
     /**
@@ -362,12 +357,14 @@ public class CannonManager
     {
         HashSet<Cannon> newCannonList = new HashSet<>();
 
-        for (Cannon cannon : getCannonList().values()) {
-            if (cannon.getWorld().equals(center.getWorld().getUID())) {
-                Location newLoc = cannon.getCannonDesign().getBarrelBlocks(cannon).get(0);
-                if (newLoc.distanceSquared(center) < sphereRadius * sphereRadius)
-                    newCannonList.add(cannon);
-            }
+        //only the cannons in the chunks touched by the sphere have to be checked
+        HashSet<Cannon> candidates = chunkIndex.getCannons(center.getWorld().getUID(),
+                (int) Math.floor(center.getX() - sphereRadius), (int) Math.floor(center.getZ() - sphereRadius),
+                (int) Math.floor(center.getX() + sphereRadius), (int) Math.floor(center.getZ() + sphereRadius));
+        for (Cannon cannon : candidates) {
+            Location newLoc = cannon.getCannonDesign().getBarrelBlock(cannon, 0);
+            if (newLoc.distanceSquared(center) < sphereRadius * sphereRadius)
+                newCannonList.add(cannon);
         }
         return newCannonList;
     }
@@ -384,27 +381,29 @@ public class CannonManager
     {
         HashSet<Cannon> newCannonList = new HashSet<Cannon>();
 
-        for (Cannon cannon : getCannonList().values())
+        //only the cannons in the chunks touched by the box have to be checked
+        HashSet<Cannon> candidates = chunkIndex.getCannons(center.getWorld().getUID(),
+                (int) Math.floor(center.getX() - lengthX / 2), (int) Math.floor(center.getZ() - lengthZ / 2),
+                (int) Math.floor(center.getX() + lengthX / 2), (int) Math.floor(center.getZ() + lengthZ / 2));
+        for (Cannon cannon : candidates)
         {
-            if (cannon.getWorld().equals(center.getWorld().getUID())) {
-                Location newLoc = cannon.getOffset().toLocation(center.getWorld());
-                Vector box = newLoc.subtract(center).toVector();
-                if (cannon.getWorld().equals(center.getWorld().getUID()) && Math.abs(box.getX()) < lengthX / 2 && Math.abs(box.getY()) < lengthY / 2 && Math.abs(box.getZ()) < lengthZ / 2)
-                    newCannonList.add(cannon);
-            }
+            Location newLoc = cannon.getOffset().toLocation(center.getWorld());
+            Vector box = newLoc.subtract(center).toVector();
+            if (Math.abs(box.getX()) < lengthX / 2 && Math.abs(box.getY()) < lengthY / 2 && Math.abs(box.getZ()) < lengthZ / 2)
+                newCannonList.add(cannon);
         }
         return newCannonList;
     }
 
+    /**
+     * claims all cannons in a box around the given location. The search runs chunk by chunk on chunk snapshots,
+     * the progress is reported to the owner
+     * @param center - center of the box
+     * @param owner - new owner of the cannons
+     */
     public void claimCannonsInBox(Location center, UUID owner){
         int halflength = 60;
-        for (int x = halflength; x >= -halflength; x--) {
-            for (int y = halflength; y >= -halflength; y--) {
-                for (int z = halflength; z >= -halflength; z--) {
-                    getCannon(center.clone().add(x, y, z), owner);
-                }
-            }
-        }
+        new ClaimCannonsTask(plugin, center, halflength, owner).start();
     }
 
     /**
@@ -415,14 +414,11 @@ public class CannonManager
     public static HashSet<Cannon> getCannonsByLocations(List<Location> locations)
     {
         HashSet<Cannon> newCannonList = new HashSet<Cannon>();
-        for (Cannon cannon : getCannonList().values())
+        for (Location loc : locations)
         {
-            for (Location loc : locations)
-            {
-                if (cannon.isCannonBlock(loc.getBlock()))
-                    newCannonList.add(cannon);
-            }
-
+            Cannon cannon = getCannonFromStorage(loc);
+            if (cannon != null && !newCannonList.contains(cannon) && cannon.isCannonBlock(loc.getBlock()))
+                newCannonList.add(cannon);
         }
         return newCannonList;
     }
@@ -466,36 +462,18 @@ public class CannonManager
         return null;
     }
 
-    private Cannon getCannonFromLocation(Location location) {
-        try {
-            return cannonCache.get(location, () -> getCannonFromStorage(location));
-        }
-        // Throws if there was no cannon at the location (i.e. the cannon is null)
-        catch (CacheLoader.InvalidCacheLoadException ex) {
-            return null;
-        }
-        catch (ExecutionException ex) {
-            return getCannonFromStorage(location);
-        }
-    }
-
     /**
      * Searches the storage if there is already a cannonblock on this location
      * and returns the cannon
      * @param loc location of one cannon block
      * @return the cannon at this location
      */
-    private Cannon getCannonFromStorage(Location loc)
+    private static Cannon getCannonFromStorage(Location loc)
     {
-        Vector locVector = loc.toVector();
-        for (Cannon cannon : cannonList.values())
-        {
-            if (locVector.distanceSquared(cannon.getOffset()) <= 1024 /*To make code faster on servers with a lot of cannons */ && cannon.isCannonBlock(loc.getBlock()))
-            {
-                return cannon;
-            }
-        }
-        return null;
+        UUID uid = blockIndex.get(loc.getWorld().getUID(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+        if (uid == null)
+            return null;
+        return cannonList.get(uid);
     }
 
     /**
@@ -518,14 +496,20 @@ public class CannonManager
      */
     public Cannon getCannon(Location cannonBlock, UUID owner, boolean silent)
     {
+        // this block is occupied by a known cannon, only the design of this cannon has to be checked
+        Cannon storageCannon = getCannonFromStorage(cannonBlock);
+        Block block = cannonBlock.getBlock();
+        if (storageCannon != null && storageCannon.isValid() && storageCannon.isCannonBlock(block) && storageCannon.isComplete())
+            return storageCannon;
+
         // is this block material used for a cannon design
-        if (!plugin.getDesignStorage().isCannonBlockMaterial(cannonBlock.getBlock().getType()))
+        if (!plugin.getDesignStorage().isCannonBlockMaterial(block.getType()))
             return null;
 
         long startTime = System.nanoTime();
 
         //check if there is a cannon at this location
-        Cannon cannon = checkCannon(cannonBlock.getBlock(), owner);
+        Cannon cannon = checkCannon(block, owner);
 
         //if there is no cannon, exit
         if (cannon == null)
@@ -546,67 +530,56 @@ public class CannonManager
         }
         else
         {
-            // this cannon has no sign, so look in the database if there is something
-            Cannon storageCannon =  getCannonFromLocation(cannonBlock);
-            if (storageCannon != null)
-            {
-                //try to find something in the storage
-                plugin.logDebug("cannon found in storage");
-                cannon = storageCannon;
-            }
-            //nothing in the storage, so we make a new entry
-            else
-            {
-                //search for a player, because owner == null is not valid
-                if (owner == null)
-                    return null;
-                Player player = Bukkit.getPlayer(owner);
+            // this cannon has no sign and the block is not occupied by a known cannon, so we make a new entry
+            //search for a player, because owner == null is not valid
+            if (owner == null)
+                return null;
+            Player player = Bukkit.getPlayer(owner);
 
-                //can this player can build one more cannon
-                MessageEnum	message = canBuildCannon(cannon, owner);
+            //can this player can build one more cannon
+            MessageEnum	message = canBuildCannon(cannon, owner);
 
-                //check the permissions for redstone
-                if (message == null || message == MessageEnum.CannonCreated)
-                    message = cannon.checkRedstonePermission(owner);
+            //check the permissions for redstone
+            if (message == null || message == MessageEnum.CannonCreated)
+                message = cannon.checkRedstonePermission(owner);
 
-                //if a sign is required to operate the cannon, there must be at least one sign
-                if (message == MessageEnum.CannonCreated && (cannon.getCannonDesign().isSignRequired() && !cannon.hasCannonSign()))
-                    message = MessageEnum.ErrorMissingSign;
+            //if a sign is required to operate the cannon, there must be at least one sign
+            if (message == MessageEnum.CannonCreated && (cannon.getCannonDesign().isSignRequired() && !cannon.hasCannonSign()))
+                message = MessageEnum.ErrorMissingSign;
 
-                CannonBeforeCreateEvent cbceEvent = new CannonBeforeCreateEvent(cannon, message, player.getUniqueId());
-                Bukkit.getServer().getPluginManager().callEvent(cbceEvent);
+            CannonBeforeCreateEvent cbceEvent = new CannonBeforeCreateEvent(cannon, message, player.getUniqueId());
+            Bukkit.getServer().getPluginManager().callEvent(cbceEvent);
 
-                //add cannon to the list if everything was fine and return the cannon
-                if (!cbceEvent.isCancelled() && cbceEvent.getMessage() != null && cbceEvent.getMessage() == MessageEnum.CannonCreated)
+            //add cannon to the list if everything was fine and return the cannon
+            if (!cbceEvent.isCancelled() && cbceEvent.getMessage() != null && cbceEvent.getMessage() == MessageEnum.CannonCreated)
+            {
+                plugin.logDebug("a new cannon was created by " + cannon.getOwner());
+                createCannon(cannon, true);
+
+                //send messages
+                if (!silent)
                 {
-                    plugin.logDebug("a new cannon was created by " + cannon.getOwner());
-                    createCannon(cannon, true);
-
-                    //send messages
-                    if (!silent)
-                    {
-                        userMessages.sendMessage(message, owner, cannon);
-                        CannonsUtil.playSound(cannon.getMuzzle(), cannon.getCannonDesign().getSoundCreate());
-                    }
-                    CannonAfterCreateEvent caceEvent = new CannonAfterCreateEvent(cannon, player.getUniqueId());
-                    Bukkit.getServer().getPluginManager().callEvent(caceEvent);
+                    userMessages.sendMessage(message, owner, cannon);
+                    CannonsUtil.playSound(cannon.getMuzzle(), cannon.getCannonDesign().getSoundCreate());
                 }
+                CannonAfterCreateEvent caceEvent = new CannonAfterCreateEvent(cannon, player.getUniqueId());
+                Bukkit.getServer().getPluginManager().callEvent(caceEvent);
+            }
 
-                else
+            else
+            {
+                //send messages
+                if (!silent)
                 {
-                    //send messages
-                    if (!silent)
-                    {
-                        userMessages.sendMessage(message, player, cannon);
-                        CannonsUtil.playErrorSound(cannon.getMuzzle());
-                    }
-
-
-                    plugin.logDebug("Creating a cannon event was canceled: " + message);
-                    return null;
+                    userMessages.sendMessage(message, player, cannon);
+                    CannonsUtil.playErrorSound(cannon.getMuzzle());
                 }
 
+
+                plugin.logDebug("Creating a cannon event was canceled: " + message);
+                return null;
             }
+
         }
 
         plugin.logDebug("Time to find cannon: " + new DecimalFormat("0.00").format((System.nanoTime() - startTime)/1000000.0) + "ms");
@@ -637,7 +610,6 @@ public class CannonManager
     {
 
         // is this block material used for a cannon design
-        Location cannonBlockLoc = cannonBlock.getLocation();
         Material cannonBlockType = cannonBlock.getType();
         if (!plugin.getDesignStorage().isCannonBlockMaterial(cannonBlockType)) {
             return null;
@@ -645,55 +617,18 @@ public class CannonManager
 
         World world = cannonBlock.getWorld();
 
-        // check all cannon design if this block is part of the design
-        for (CannonDesign cannonDesign : plugin.getDesignStorage().getCannonDesignList())
+        // check only the design blocks which have the same material as this block
+        for (DesignMatcher.Candidate candidate : plugin.getDesignStorage().getDesignMatcher().getCandidates(cannonBlockType))
         {
-            // check of all directions
-            BlockFace cannonDirection = BlockFace.NORTH;
-            for (int i = 0; i < 4; i++)
-            {
-                // for all blocks for the design
-                List<SimpleBlock> designBlockList = cannonDesign.getAllCannonBlocks(cannonDirection);
-                //check for empty entries
-                if (designBlockList.size() == 0)
-                {
-                    plugin.logSevere("There are empty cannon design schematics in your design folder. Please check it.");
-                    return null;
-                }
-                for (SimpleBlock designBlock : designBlockList)
-                {
-                    // compare blocks
-                    if (designBlock.compareMaterialAndFacing(cannonBlock, cannonBlockType))
-                    {
-                        // this block is same as in the design, get the offset
-                        Vector offset = designBlock.subtractInverted(cannonBlockLoc).toVector();
-
-                        // check all other blocks of the cannon
-                        boolean isCannon = true;
-
-                        for (SimpleBlock checkBlocks : designBlockList)
-                        {
-                            if (!checkBlocks.compareMaterialAndFacing(world, offset))
-                            {
-                                // if the block does not match this is not the
-                                // right one
-                                isCannon = false;
-                                break;
-                            }
-                        }
+            // this block is same as in the design, get the offset
+            Vector offset = candidate.getOffset(cannonBlock.getX(), cannonBlock.getY(), cannonBlock.getZ());
 
-                        // this is a cannon
-                        if (isCannon)
-                        {
-                            // cannon
-                            return new Cannon(cannonDesign, world.getUID(), offset, cannonDirection, owner);
-                        }
-                    }
-                }
-                // rotate cannon direction
-                cannonDirection = CannonsUtil.roatateFace(cannonDirection);
+            // check all other blocks of the cannon
+            if (candidate.matches(world, offset))
+            {
+                // cannon
+                return new Cannon(candidate.getDesign(), world.getUID(), offset, candidate.getCannonDirection(), owner);
             }
-
         }
         return null;
     }
@@ -705,19 +640,155 @@ public class CannonManager
      */
     public int getNumberOfCannons(UUID player)
     {
-        int i = 0;
-        for (Cannon cannon : cannonList.values())
+        if (player == null)
+            return 0;
+        Set<UUID> owned = ownerMap.get(player);
+        return owned == null ? 0 : owned.size();
+    }
+
+    /**
+     * returns all cannons owned by this player
+     * @param owner the owner of the cannons
+     * @return cannons of this owner
+     */
+    public static HashSet<Cannon> getCannonsByOwner(UUID owner)
+    {
+        HashSet<Cannon> newCannonList = new HashSet<Cannon>();
+        if (owner == null)
+            return newCannonList;
+        Set<UUID> owned = ownerMap.get(owner);
+        if (owned == null)
+            return newCannonList;
+        for (UUID uid : owned)
         {
-            if (cannon.getOwner() == null)
-            {
-                plugin.logSevere("Cannon has no owner. Contact the plugin developer");
-            }
-            else if (cannon.getOwner().equals(player))
-            {
-                i++;
-            }
+            Cannon cannon = cannonList.get(uid);
+            if (cannon != null)
+                newCannonList.add(cannon);
         }
-        return i;
+        return newCannonList;
+    }
+
+    /**
+     * removes the cannon from the list of cannons and all indices
+     * @param cannon cannon to remove
+     */
+    private static void unregisterCannon(Cannon cannon)
+    {
+        cannonList.remove(cannon.getUID());
+        removeFromIndices(cannon);
+    }
+
+    private static void addToIndices(Cannon cannon)
+    {
+        addToLocationIndex(cannon);
+        addToOwnerIndex(cannon.getOwner(), cannon);
+        addToNameIndex(cannon.getCannonName(), cannon);
+    }
+
+    private static void removeFromIndices(Cannon cannon)
+    {
+        removeFromLocationIndex(cannon);
+        removeFromOwnerIndex(cannon.getOwner(), cannon);
+        removeFromNameIndex(cannon.getCannonName(), cannon);
+    }
+
+    private static void addToNameIndex(String name, Cannon cannon)
+    {
+        if (name != null)
+            cannonNameMap.put(name, cannon.getUID());
+    }
+
+    /**
+     * removes the name if it belongs to this cannon. If the name has a numbered suffix, the suffix can be used again
+     * @param name name of the cannon
+     * @param cannon cannon with this name
+     */
+    private static void removeFromNameIndex(String name, Cannon cannon)
+    {
+        if (name == null || !cannonNameMap.remove(name, cannon.getUID()))
+            return;
+
+        int split = name.lastIndexOf(' ');
+        if (split < 0)
+            return;
+        int suffix;
+        try
+        {
+            suffix = Integer.parseInt(name.substring(split + 1));
+        }
+        catch (NumberFormatException e)
+        {
+            return;
+        }
+        nameSuffixMap.computeIfPresent(name.substring(0, split), (k, next) -> Math.min(next, suffix));
+    }
+
+    private static void addToOwnerIndex(UUID owner, Cannon cannon)
+    {
+        if (owner != null)
+            ownerMap.computeIfAbsent(owner, k -> ConcurrentHashMap.newKeySet()).add(cannon.getUID());
+    }
+
+    private static void removeFromOwnerIndex(UUID owner, Cannon cannon)
+    {
+        if (owner == null)
+            return;
+        ownerMap.computeIfPresent(owner, (k, owned) -> {
+            owned.remove(cannon.getUID());
+            return owned.isEmpty() ? null : owned;
+        });
+    }
+
+    private static void addToLocationIndex(Cannon cannon)
+    {
+        chunkIndex.add(cannon);
+        blockIndex.add(cannon);
+    }
+
+    private static void removeFromLocationIndex(Cannon cannon)
+    {
+        chunkIndex.remove(cannon);
+        blockIndex.remove(cannon);
+    }
+
+    /**
+     * updates the location indices of a cannon after it was moved, rotated or got a new design.
+     * Cannons which are not in the list of cannons are ignored
+     * @param cannon the cannon which has changed
+     */
+    static void updateCannonLocation(Cannon cannon)
+    {
+        if (cannon.getUID() == null || cannonList.get(cannon.getUID()) != cannon)
+            return;
+        addToLocationIndex(cannon);
+    }
+
+    /**
+     * updates the name index after the cannon was renamed.
+     * Cannons which are not in the list of cannons are ignored
+     * @param cannon the renamed cannon
+     * @param oldName the previous name of the cannon
+     */
+    static void updateCannonName(Cannon cannon, String oldName)
+    {
+        if (cannon.getUID() == null || cannonList.get(cannon.getUID()) != cannon)
+            return;
+        removeFromNameIndex(oldName, cannon);
+        addToNameIndex(cannon.getCannonName(), cannon);
+    }
+
+    /**
+     * updates the owner index after the owner of a cannon has changed.
+     * Cannons which are not in the list of cannons are ignored
+     * @param cannon the cannon which has a new owner
+     * @param oldOwner the previous owner of the cannon
+     */
+    static void updateCannonOwner(Cannon cannon, UUID oldOwner)
+    {
+        if (cannon.getUID() == null || cannonList.get(cannon.getUID()) != cannon)
+            return;
+        removeFromOwnerIndex(oldOwner, cannon);
+        addToOwnerIndex(cannon.getOwner(), cannon);
     }
 
     /**
@@ -735,6 +806,11 @@ public class CannonManager
     public void clearCannonList()
     {
         cannonList.clear();
+        chunkIndex.clear();
+        blockIndex.clear();
+        ownerMap.clear();
+        cannonNameMap.clear();
+        nameSuffixMap.clear();
     }
 
     /**
@@ -868,6 +944,7 @@ public class CannonManager
             }
             cannon.destroyCannon(false, false, BreakCause.Other);
             iter.remove();
+            removeFromIndices(cannon);
         }
     }
 
@@ -879,20 +956,14 @@ public class CannonManager
      */
     public boolean deleteCannons(UUID owner)
     {
-        Iterator<Cannon> iter = cannonList.values().iterator();
-        boolean inList = false;
+        HashSet<Cannon> owned = getCannonsByOwner(owner);
 
-        while (iter.hasNext())
+        for (Cannon next : owned)
         {
-            Cannon next = iter.next();
-            if (next.getOwner() != null && next.getOwner().equals(owner))
-            {
-                inList = true;
-                next.destroyCannon(false, false, BreakCause.Other);
-                iter.remove();
-            }
+            next.destroyCannon(false, false, BreakCause.Other);
+            unregisterCannon(next);
         }
-        return inList;
+        return !owned.isEmpty();
     }
 
     /**
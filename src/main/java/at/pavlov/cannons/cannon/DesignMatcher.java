@@ -0,0 +1,164 @@
+package at.pavlov.cannons.cannon;
+
+import java.util.*;
+
+import at.pavlov.cannons.container.SimpleBlock;
+import at.pavlov.cannons.utils.CannonsUtil;
+import at.pavlov.cannons.utils.ChunkSnapshotLookup;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.util.Vector;
+
+
+/**
+ * precomputed lookup of all cannon designs by block material. For every material it stores which block of which
+ * design and rotation could be the given block, so only these candidates have to be checked in the world.
+ * The blocks of each candidate are verified rarest material first, so most mismatches fail after one or two block reads.
+ */
+public class DesignMatcher
+{
+    private final EnumMap<Material, List<Candidate>> candidateMap = new EnumMap<>(Material.class);
+
+    /**
+     * one possible match of a block in the world with a block of a design
+     */
+    public static class Candidate
+    {
+        private final CannonDesign design;
+        private final BlockFace cannonDirection;
+        //the block of the design which matches the material
+        private final SimpleBlock designBlock;
+        //all blocks of the design, rarest material first
+        private final SimpleBlock[] verifyOrder;
+
+        private Candidate(CannonDesign design, BlockFace cannonDirection, SimpleBlock designBlock, SimpleBlock[] verifyOrder)
+        {
+            this.design = design;
+            this.cannonDirection = cannonDirection;
+            this.designBlock = designBlock;
+            this.verifyOrder = verifyOrder;
+        }
+
+        public CannonDesign getDesign()
+        {
+            return design;
+        }
+
+        public BlockFace getCannonDirection()
+        {
+            return cannonDirection;
+        }
+
+        /**
+         * returns the offset of the cannon if the given block is the matching design block
+         * @param x x coordinate of the block
+         * @param y y coordinate of the block
+         * @param z z coordinate of the block
+         * @return offset of the cannon
+         */
+        public Vector getOffset(int x, int y, int z)
+        {
+            return new Vector(x - designBlock.getLocX(), y - designBlock.getLocY(), z - designBlock.getLocZ());
+        }
+
+        /**
+         * checks all other blocks of the design in the world
+         * @param world world of the cannon
+         * @param offset offset of the cannon
+         * @return true if all blocks match the design
+         */
+        public boolean matches(World world, Vector offset)
+        {
+            int ox = offset.getBlockX();
+            int oy = offset.getBlockY();
+            int oz = offset.getBlockZ();
+            for (SimpleBlock checkBlock : verifyOrder)
+            {
+                //this block was already compared
+                if (checkBlock == designBlock)
+                    continue;
+                if (!checkBlock.compareMaterialAndFacing(world.getBlockAt(checkBlock.getLocX() + ox, checkBlock.getLocY() + oy, checkBlock.getLocZ() + oz)))
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * checks all other blocks of the design on chunk snapshots. Can be called from any thread
+         * @param lookup snapshots of the chunks around the cannon
+         * @param offset offset of the cannon
+         * @return true if all blocks match the design, false if not or a block is outside the snapshots
+         */
+        public boolean matches(ChunkSnapshotLookup lookup, Vector offset)
+        {
+            int ox = offset.getBlockX();
+            int oy = offset.getBlockY();
+            int oz = offset.getBlockZ();
+            for (SimpleBlock checkBlock : verifyOrder)
+            {
+                //this block was already compared
+                if (checkBlock == designBlock)
+                    continue;
+                Material material = lookup.getType(checkBlock.getLocX() + ox, checkBlock.getLocY() + oy, checkBlock.getLocZ() + oz);
+                if (material == null || !checkBlock.compareMaterial(material))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * builds the lookup for the given designs. The order of the designs is kept
+     * @param designList all loaded cannon designs
+     */
+    public DesignMatcher(List<CannonDesign> designList)
+    {
+        //count how often each material is used in all designs
+        HashMap<Material, Integer> materialCount = new HashMap<>();
+        for (CannonDesign design : designList)
+        {
+            for (SimpleBlock block : design.getAllCannonBlocks(BlockFace.NORTH))
+                materialCount.merge(block.getBlockData().getMaterial(), 1, Integer::sum);
+        }
+        //air is everywhere, so it is checked last
+        Comparator<SimpleBlock> rarestFirst = Comparator.comparingInt(block -> {
+            Material material = block.getBlockData().getMaterial();
+            return material.isAir() ? Integer.MAX_VALUE : materialCount.getOrDefault(material, 0);
+        });
+
+        for (CannonDesign design : designList)
+        {
+            BlockFace cannonDirection = BlockFace.NORTH;
+            for (int i = 0; i < 4; i++)
+            {
+                List<SimpleBlock> designBlockList = design.getAllCannonBlocks(cannonDirection);
+                SimpleBlock[] verifyOrder = designBlockList.toArray(new SimpleBlock[0]);
+                //the sort is stable, so blocks of the same material keep the design order
+                Arrays.sort(verifyOrder, rarestFirst);
+
+                for (SimpleBlock designBlock : designBlockList)
+                {
+                    Material material = designBlock.getBlockData().getMaterial();
+                    if (material.isAir())
+                        continue;
+                    candidateMap.computeIfAbsent(material, k -> new ArrayList<>()).add(new Candidate(design, cannonDirection, designBlock, verifyOrder));
+                }
+                cannonDirection = CannonsUtil.roatateFace(cannonDirection);
+            }
+        }
+    }
+
+    /**
+     * returns all design blocks which can match a block of this material
+     * @param material material of the block in the world
+     * @return list of candidates, empty if this material is not used by any design
+     */
+    public List<Candidate> getCandidates(Material material)
+    {
+        List<Candidate> candidates = candidateMap.get(material);
+        if (candidates == null)
+            return Collections.emptyList();
+        return candidates;
+    }
+}
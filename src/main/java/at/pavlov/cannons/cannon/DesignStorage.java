@@ -46,12 +46,14 @@ public class DesignStorage
 	private final List<CannonDesign> cannonDesignList;
 	private final Cannons plugin;
 	private final EnumSet<Material> cannonBlockMaterials;
+	private DesignMatcher designMatcher;
 
 	public DesignStorage(Cannons cannons)
 	{
 		plugin = cannons;
 		cannonDesignList = new ArrayList<>();
 		cannonBlockMaterials = EnumSet.noneOf(Material.class);
+		designMatcher = new DesignMatcher(cannonDesignList);
 	}
 
 	/**
@@ -107,6 +109,8 @@ public class DesignStorage
 		cannonDesignList.sort(comparator);
 
 		for (CannonDesign cannonDesign : getCannonDesignList()) {
+			if (cannonDesign.getAllCannonBlocks(BlockFace.NORTH).isEmpty())
+				plugin.logSevere("There are empty cannon design schematics in your design folder. Please check it.");
 			for (SimpleBlock sBlock : cannonDesign.getAllCannonBlocks(BlockFace.NORTH)){
 				Material material = sBlock.getBlockData().getMaterial();
 				if (material != Material.AIR && !cannonBlockMaterials.contains(material)) {
@@ -116,6 +120,9 @@ public class DesignStorage
 		}
 
 
+		//lookup of all designs by material for the cannon detection
+		designMatcher = new DesignMatcher(cannonDesignList);
+
 		for (CannonDesign design : cannonDesignList)
 		{
 			plugin.logDebug("design " + design.toString());
@@ -587,6 +594,7 @@ public class DesignStorage
                 block.subtract(compensation);
             cannonBlocks.getMuzzle().subtract(compensation);
             cannonBlocks.getRotationCenter().subtract(compensation);
+            cannonBlocks.pack();
 
 			// add blocks to the HashMap
 			cannonDesign.getCannonBlockMap().put(cannonDirection, cannonBlocks);
@@ -744,6 +752,10 @@ public class DesignStorage
 		return cannonBlockMaterials;
 	}
 
+	public DesignMatcher getDesignMatcher() {
+		return designMatcher;
+	}
+
 	public boolean isCannonBlockMaterial(Material material) {
 		return material != Material.AIR && cannonBlockMaterials.contains(material);
 	}
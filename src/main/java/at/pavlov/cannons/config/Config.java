@@ -33,6 +33,7 @@ public class Config
     private int claimEdgeLength;
 
     private boolean enableRedstoneFiring; // CCNet
+    private boolean regionizedScheduling;
 	
 	//build limits
 	private boolean buildLimitEnabled;
@@ -41,6 +42,18 @@ public class Config
     //keepProjectileAlive
     private boolean keepAliveEnabled;
     private double keepAliveTeleportDistance;
+    private boolean precomputeTrajectory;
+
+    //virtual projectiles
+    private boolean virtualProjectilesEnabled;
+    private Particle virtualProjectilesParticle;
+    private int virtualProjectilesParticleCount;
+
+    //sentry scheduling
+    private int sentryUpdatePhases;
+    private long sentryTickBudget;
+    private double sentryPriorityRange;
+    private int sentryLineOfSightCacheSize;
 	//tools
 	private ItemHolder toolAdjust = new ItemHolder("minecraft:air");
 	private ItemHolder toolAutoaim = new ItemHolder("minecraft:clock");
@@ -122,6 +135,7 @@ public class Config
         setRelayExplosionEvent(plugin.getConfig().getBoolean("general.relayExplosionEvent", false));
         setClaimEdgeLength(plugin.getConfig().getInt("general.claimEdgeLength", 60));
         setEnableRedstoneFiring(plugin.getConfig().getBoolean("general.enableRedstoneFiring", true));
+        setRegionizedScheduling(plugin.getConfig().getBoolean("general.regionizedScheduling", false));
 		
 		//limitOfCannons
 		setBuildLimitEnabled(plugin.getConfig().getBoolean("cannonLimits.useLimits", true));
@@ -131,6 +145,25 @@ public class Config
         //keepProjectileAlive
         setKeepAliveEnabled(plugin.getConfig().getBoolean("keepProjectileAlive.enabled", true));
         setKeepAliveTeleportDistance(plugin.getConfig().getDouble("keepProjectileAlive.teleportProjectile", 5.0));
+        setPrecomputeTrajectory(plugin.getConfig().getBoolean("keepProjectileAlive.precomputeTrajectory", false));
+
+        //virtualProjectiles
+        setVirtualProjectilesEnabled(plugin.getConfig().getBoolean("virtualProjectiles.enabled", false));
+        try {
+            setVirtualProjectilesParticle(Particle.valueOf(plugin.getConfig().getString("virtualProjectiles.particles.type", "CRIT")));
+        }
+        catch(Exception e){
+            plugin.logSevere("Type for virtual projectile particle is not correct. Please check spelling of " + plugin.getConfig().getString("virtualProjectiles.particles.type"));
+            setVirtualProjectilesParticle(Particle.CRIT);
+        }
+        setVirtualProjectilesParticleCount(plugin.getConfig().getInt("virtualProjectiles.particles.count", 2));
+
+        //sentryScheduling
+        setSentryUpdatePhases(Math.max(1, plugin.getConfig().getInt("sentryScheduling.phases", 4)));
+        //the budget is given in microseconds
+        setSentryTickBudget(plugin.getConfig().getLong("sentryScheduling.tickBudget", 2000) * 1000L);
+        setSentryPriorityRange(plugin.getConfig().getDouble("sentryScheduling.priorityRange", 64.0));
+        setSentryLineOfSightCacheSize(Math.max(0, plugin.getConfig().getInt("sentryScheduling.lineOfSightCacheSize", 4096)));
 
 		//tools
 		setToolAdjust(new ItemHolder(plugin.getConfig().getString("tools.adjust", "minecraft:air")));
@@ -505,6 +538,78 @@ public class Config
         this.keepAliveTeleportDistance = keepAliveTeleportDistance;
     }
 
+    public boolean isVirtualProjectilesEnabled() {
+        return virtualProjectilesEnabled;
+    }
+
+    public void setVirtualProjectilesEnabled(boolean virtualProjectilesEnabled) {
+        this.virtualProjectilesEnabled = virtualProjectilesEnabled;
+    }
+
+    public Particle getVirtualProjectilesParticle() {
+        return virtualProjectilesParticle;
+    }
+
+    public void setVirtualProjectilesParticle(Particle virtualProjectilesParticle) {
+        this.virtualProjectilesParticle = virtualProjectilesParticle;
+    }
+
+    public int getVirtualProjectilesParticleCount() {
+        return virtualProjectilesParticleCount;
+    }
+
+    public void setVirtualProjectilesParticleCount(int virtualProjectilesParticleCount) {
+        this.virtualProjectilesParticleCount = virtualProjectilesParticleCount;
+    }
+
+    public int getSentryUpdatePhases() {
+        return sentryUpdatePhases;
+    }
+
+    public void setSentryUpdatePhases(int sentryUpdatePhases) {
+        this.sentryUpdatePhases = sentryUpdatePhases;
+    }
+
+    /**
+     * maximum time the sentry updates may use in one tick
+     * @return budget in nanoseconds
+     */
+    public long getSentryTickBudget() {
+        return sentryTickBudget;
+    }
+
+    public void setSentryTickBudget(long sentryTickBudget) {
+        this.sentryTickBudget = sentryTickBudget;
+    }
+
+    public double getSentryPriorityRange() {
+        return sentryPriorityRange;
+    }
+
+    public void setSentryPriorityRange(double sentryPriorityRange) {
+        this.sentryPriorityRange = sentryPriorityRange;
+    }
+
+    /**
+     * number of line of sight checks which are cached, 0 disables the cache
+     * @return maximum number of entries
+     */
+    public int getSentryLineOfSightCacheSize() {
+        return sentryLineOfSightCacheSize;
+    }
+
+    public void setSentryLineOfSightCacheSize(int sentryLineOfSightCacheSize) {
+        this.sentryLineOfSightCacheSize = sentryLineOfSightCacheSize;
+    }
+
+    public boolean isPrecomputeTrajectory() {
+        return precomputeTrajectory;
+    }
+
+    public void setPrecomputeTrajectory(boolean precomputeTrajectory) {
+        this.precomputeTrajectory = precomputeTrajectory;
+    }
+
     public boolean isImitatedPredictorEnabled() {
         return imitatedPredictorEnabled;
     }
@@ -565,6 +670,14 @@ public class Config
         return claimEdgeLength;
     }
 
+    public boolean isRegionizedScheduling() {
+        return regionizedScheduling;
+    }
+
+    public void setRegionizedScheduling(boolean regionizedScheduling) {
+        this.regionizedScheduling = regionizedScheduling;
+    }
+
     public void setClaimEdgeLength(int claimEdgeLength) {
         this.claimEdgeLength = claimEdgeLength;
     }
@@ -249,6 +249,34 @@ public class UserMessages {
         if (message != null)
             sendMessage(message, player);
     }
+
+    /**
+     * sends the progress of claiming cannons to the player
+     * @param player player who is claiming the cannons
+     * @param progress progress in percent
+     * @param claimed number of claimed cannons so far
+     */
+    public void sendClaimProgressMessage(Player player, int progress, int claimed)
+    {
+        //no player no message
+        if (player == null || !player.isOnline())
+            return;
+
+        String message = messageMap.get(MessageEnum.CmdClaimCannonsProgress.getString());
+        if (message == null){
+            plugin.logSevere("No " + MessageEnum.CmdClaimCannonsProgress.getString() + " in localization file");
+            return;
+        }
+        //if the message is something like this Explosion: '' it will pass quietly
+        if (message.isEmpty()) {
+            return;
+        }
+        //replace tags
+        message = message.replace("CLAIM_PROGRESS", Integer.toString(progress));
+        message = message.replace("CLAIMED_CANNONS", Integer.toString(claimed));
+
+        sendMessage(message, player);
+    }
 	
 	/**
 	 * returns the message from the Map
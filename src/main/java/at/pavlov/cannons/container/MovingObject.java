@@ -1,7 +1,8 @@
 package at.pavlov.cannons.container;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.entity.EntityType;
 import org.bukkit.util.Vector;
 
@@ -9,19 +10,56 @@ import java.util.UUID;
 
 public class MovingObject {
 
-    //location and speed
-    private UUID world;
-    private Vector loc;
-    private Vector vel;
+    //location and speed, stored as primitives so an update does not create new objects
+    private World world;
+    private double x, y, z;
+    private double velX, velY, velZ;
     private EntityType entityType;
 
+    //drag and gravity for this type of entity, resolved once
+    private double drag;
+    private double dragInWater;
+    private double gravity;
+
 
     public MovingObject(Location loc, Vector vel, EntityType entityType)
     {
-        world = loc.getWorld().getUID();
-        this.loc = loc.toVector();
-        this.vel = vel;
+        setLocation(loc);
+        setVel(vel);
         this.entityType = entityType;
+
+        drag = getDrag(entityType, false);
+        dragInWater = getDrag(entityType, true);
+        gravity = getGravity(entityType);
+    }
+
+    /**
+     * returns the factor the velocity is multiplied with every tick
+     * @param entityType type of the projectile entity
+     * @param inWater the projectile is in water
+     * @return drag factor
+     */
+    public static double getDrag(EntityType entityType, boolean inWater)
+    {
+        if (entityType.equals(EntityType.FIREBALL) || entityType.equals(EntityType.SMALL_FIREBALL))
+            return 0.95F;
+        if (inWater)
+            return entityType.equals(EntityType.ARROW) ? 0.6F : 0.8F;
+        return 0.99F;
+    }
+
+    /**
+     * returns the velocity the projectile loses every tick by gravity
+     * @param entityType type of the projectile entity
+     * @return gravity per tick
+     */
+    public static double getGravity(EntityType entityType)
+    {
+        if (entityType.equals(EntityType.FIREBALL) || entityType.equals(EntityType.SMALL_FIREBALL))
+            return 0.0;
+        if (entityType.equals(EntityType.ARROW))
+            return 0.05000000074505806D;
+        return 0.03F;
     }
 
     /**
@@ -30,25 +68,17 @@ public class MovingObject {
      */
     public void updateProjectileLocation(boolean inWater)
     {
-        double f2 = 0.99F;
-        if (inWater)
-            f2 = 0.8F;
-        double f3 = 0.03F;
-        if (entityType.equals(EntityType.ARROW)){
-            f3 = 0.05000000074505806D;
-            if (inWater)
-                f2 = 0.6F;
-        }
-        if (entityType.equals(EntityType.FIREBALL) || entityType.equals(EntityType.SMALL_FIREBALL)){
-            f2 = 0.95F;
-            f3 = 0.0;
-        }
+        double f2 = inWater ? dragInWater : drag;
         //update location
-        this.loc.add(this.vel);
+        x += velX;
+        y += velY;
+        z += velZ;
         //slow down projectile
-        this.vel.multiply(f2);
+        velX *= f2;
+        velY *= f2;
+        velZ *= f2;
         //apply gravity
-        this.vel.subtract(new Vector(0,f3,0));
+        velY -= gravity;
     }
 
     /**
@@ -57,16 +87,30 @@ public class MovingObject {
      */
     public void revertProjectileLocation(boolean inWater)
     {
-        double f2 = 0.99F;
-        if (inWater)
-            f2 = 0.8F;
-        double f3 = 0.03F;
+        double f2 = inWater ? dragInWater : drag;
         //apply gravity
-        this.vel.add(new Vector(0, f3, 0));
+        velY += gravity;
         //slow down projectile
-        this.vel.multiply(1.0 / f2);
+        velX /= f2;
+        velY /= f2;
+        velZ /= f2;
         //update location
-        this.loc.subtract(this.vel);
+        x -= velX;
+        y -= velY;
+        z -= velZ;
+    }
+
+    /**
+     * sets the location and velocity without creating any objects, the world stays the same
+     */
+    public void setState(double x, double y, double z, double velX, double velY, double velZ)
+    {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.velX = velX;
+        this.velY = velY;
+        this.velZ = velZ;
     }
 
     /**
@@ -76,9 +120,8 @@ public class MovingObject {
      */
     public void teleport(Location loc, Vector vel)
     {
-        this.loc = loc.toVector();
-        this.vel = vel;
-        this.world = loc.getWorld().getUID();
+        setLocation(loc);
+        setVel(vel);
     }
 
     /**
@@ -87,37 +130,114 @@ public class MovingObject {
      */
     public Location getLocation()
     {
-        return loc.toLocation(Bukkit.getWorld(world));
+        return new Location(world, x, y, z);
     }
 
     public void setLocation(Location loc)
     {
-        this.loc = loc.toVector();
-        this.world = loc.getWorld().getUID();
+        this.world = loc.getWorld();
+        this.x = loc.getX();
+        this.y = loc.getY();
+        this.z = loc.getZ();
+    }
+
+    /**
+     * squared distance of the projectile to this point
+     * @return squared distance
+     */
+    public double distanceSquared(double px, double py, double pz)
+    {
+        double dx = x - px;
+        double dy = y - py;
+        double dz = z - pz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public int getBlockX() {
+        return Location.locToBlock(x);
+    }
+
+    public int getBlockY() {
+        return Location.locToBlock(y);
+    }
+
+    public int getBlockZ() {
+        return Location.locToBlock(z);
+    }
+
+    /**
+     * returns true if the chunk at the location of the projectile is loaded
+     * @return true if the chunk is loaded
+     */
+    public boolean isChunkLoaded() {
+        return world.isChunkLoaded(getBlockX() >> 4, getBlockZ() >> 4);
+    }
+
+    /**
+     * returns the material of the block at the location of the projectile
+     * @return material of the block
+     */
+    public Material getBlockType() {
+        return world.getType(getBlockX(), getBlockY(), getBlockZ());
+    }
+
+    public double getDrag(boolean inWater) {
+        return inWater ? dragInWater : drag;
+    }
+
+    public double getGravity() {
+        return gravity;
     }
 
     public UUID getWorld() {
+        return world.getUID();
+    }
+
+    public World getWorldBukkit() {
         return world;
     }
 
-    public void setWorld(UUID world) {
-        this.world = world;
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public double getVelX() {
+        return velX;
+    }
+
+    public double getVelY() {
+        return velY;
+    }
+
+    public double getVelZ() {
+        return velZ;
     }
 
     public Vector getLoc() {
-        return loc;
+        return new Vector(x, y, z);
     }
 
     public void setLoc(Vector loc) {
-        this.loc = loc;
+        this.x = loc.getX();
+        this.y = loc.getY();
+        this.z = loc.getZ();
     }
 
     public Vector getVel() {
-        return vel;
+        return new Vector(velX, velY, velZ);
     }
 
     public void setVel(Vector vel) {
-        this.vel = vel;
+        this.velX = vel.getX();
+        this.velY = vel.getY();
+        this.velZ = vel.getZ();
     }
 }
-
@@ -3,12 +3,11 @@ package at.pavlov.cannons.dao;
 import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.cannon.Cannon;
 import at.pavlov.cannons.cannon.CannonManager;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.sql.Statement;
 import java.util.UUID;
 
-public class DeleteCannonTask extends BukkitRunnable{
+public class DeleteCannonTask implements Runnable {
     private UUID cannonId = null;
     private UUID playerId = null;
     public DeleteCannonTask(){
@@ -9,8 +9,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
 import org.bukkit.block.BlockFace;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 
 import java.sql.ResultSet;
@@ -18,7 +16,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.UUID;
 
-public class LoadCannonTask extends BukkitRunnable{
+public class LoadCannonTask implements Runnable {
     public LoadCannonTask(){
 
     }
@@ -116,7 +114,8 @@ public class LoadCannonTask extends BukkitRunnable{
                     cannon.setChargesRemaining(rs.getInt("charges_remaining"));
 
                     //add a cannon to the cannon list
-                    BukkitTask task = new CreateCannon(Cannons.getPlugin(), cannon, false).runTask(Cannons.getPlugin());
+                    Cannons.getPlugin().getRegionTaskScheduler().runNextTick(cannon.getOffset().toLocation(w),
+                            new CreateCannon(Cannons.getPlugin(), cannon, false));
                     //plugin.createCannon(cannon);
                     i++;
                 }
@@ -3,13 +3,12 @@ package at.pavlov.cannons.dao;
 import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.cannon.Cannon;
 import at.pavlov.cannons.cannon.CannonManager;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.UUID;
 
-public class LoadWhitelistTask extends BukkitRunnable {
+public class LoadWhitelistTask implements Runnable {
     private UUID cannonId;
 
     public LoadWhitelistTask(UUID cannonId){
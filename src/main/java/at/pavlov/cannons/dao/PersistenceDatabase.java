@@ -1,16 +1,16 @@
 package at.pavlov.cannons.dao;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.cannon.Cannon;
-import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitTask;
 
 public class PersistenceDatabase
 {
 	private Cannons plugin;
-	private BukkitTask saveTask = null;
+	//number of save tasks which are running right now
+	private final AtomicInteger runningSaveTasks = new AtomicInteger();
 
 	public PersistenceDatabase(Cannons _plugin)
 	{
@@ -35,8 +35,7 @@ public class PersistenceDatabase
         }
 		plugin.getCannonManager().clearCannonList();
 
-	    LoadCannonTask task = new LoadCannonTask();
-	    task.runTaskAsynchronously(plugin);
+	    plugin.getRegionTaskScheduler().runAsync(new LoadCannonTask());
 	}
 
 	public void saveAllCannons(boolean async){
@@ -46,7 +45,7 @@ public class PersistenceDatabase
 		}
 		SaveCannonTask saveCannonTask = new SaveCannonTask();
 		if (async)
-			saveTask = saveCannonTask.runTaskAsynchronously(plugin);
+			runSaveTask(saveCannonTask);
 		else
 			saveCannonTask.run();
     }
@@ -56,12 +55,26 @@ public class PersistenceDatabase
 			plugin.logSevere("No connection to database");
 			return;
 		}
-		SaveCannonTask saveCannonTask = new SaveCannonTask(cannon.getUID());
-		saveTask = saveCannonTask.runTaskAsynchronously(plugin);
+		runSaveTask(new SaveCannonTask(cannon.getUID()));
+	}
+
+	/**
+	 * runs the save task async. The task is counted while it is running, a task which was cancelled before it
+	 * has started is not counted
+	 */
+	private void runSaveTask(SaveCannonTask saveCannonTask){
+		plugin.getRegionTaskScheduler().runAsync(() -> {
+			runningSaveTasks.incrementAndGet();
+			try {
+				saveCannonTask.run();
+			} finally {
+				runningSaveTasks.decrementAndGet();
+			}
+		});
 	}
 
 	public boolean isSaveTaskRunning() {
-		return saveTask != null && Bukkit.getScheduler().isCurrentlyRunning(saveTask.getTaskId());
+		return runningSaveTasks.get() > 0;
 	}
 
     public void deleteCannon(UUID cannon_id){
@@ -70,7 +83,7 @@ public class PersistenceDatabase
 			return;
 		}
 		DeleteCannonTask deleteCannonTask = new DeleteCannonTask(cannon_id);
-		deleteCannonTask.runTaskAsynchronously(plugin);
+		plugin.getRegionTaskScheduler().runAsync(deleteCannonTask);
 	}
 
 	public void deleteAllCannons(){
@@ -79,7 +92,7 @@ public class PersistenceDatabase
 			return;
 		}
 		DeleteCannonTask deleteCannonTask = new DeleteCannonTask();
-		deleteCannonTask.runTaskAsynchronously(plugin);
+		plugin.getRegionTaskScheduler().runAsync(deleteCannonTask);
 	}
 
 	public void deleteCannons(UUID player_id){
@@ -88,6 +101,6 @@ public class PersistenceDatabase
 			return;
 		}
 		DeleteCannonTask deleteCannonTask = new DeleteCannonTask(player_id, true);
-		deleteCannonTask.runTaskAsynchronously(plugin);
+		plugin.getRegionTaskScheduler().runAsync(deleteCannonTask);
 	}
 }
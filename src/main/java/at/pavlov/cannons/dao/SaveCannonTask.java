@@ -4,12 +4,11 @@ import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.cannon.Cannon;
 import at.pavlov.cannons.cannon.CannonManager;
 import at.pavlov.cannons.projectile.Projectile;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.sql.PreparedStatement;
 import java.util.UUID;
 
-public class SaveCannonTask extends BukkitRunnable {
+public class SaveCannonTask implements Runnable {
 
     private UUID cannonId = null;
     public SaveCannonTask(UUID cannonId){
@@ -0,0 +1,185 @@
+package at.pavlov.cannons.listener;
+
+import at.pavlov.cannons.Cannons;
+import at.pavlov.cannons.utils.ChunkChangeTracker;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.Directional;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+
+import java.util.List;
+
+/**
+ * marks the chunks of changed blocks, so precomputed trajectories and cached lines of sight crossing them are checked again
+ */
+public class ChunkChangeListener implements Listener
+{
+    private final Cannons plugin;
+
+    public ChunkChangeListener(Cannons plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    private boolean isTracking()
+    {
+        return plugin.getMyConfig().isPrecomputeTrajectory() || plugin.getMyConfig().getSentryLineOfSightCacheSize() > 0;
+    }
+
+    private void markChanged(Block block)
+    {
+        if (isTracking())
+            ChunkChangeTracker.markChanged(block);
+    }
+
+    private void markChanged(List<Block> blocks)
+    {
+        if (!isTracking())
+            return;
+        for (Block block : blocks)
+            ChunkChangeTracker.markChanged(block);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockGrow(BlockGrowEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    /**
+     * flowing water and lava, the projectile path ends at a liquid
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event)
+    {
+        markChanged(event.getToBlock());
+    }
+
+    /**
+     * a placed source block does not fire BlockFromTo, the clicked block might be waterlogged
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event)
+    {
+        markChanged(event.getBlock());
+        markChanged(event.getBlockClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event)
+    {
+        markChanged(event.getBlock());
+        markChanged(event.getBlockClicked());
+    }
+
+    /**
+     * a dispenser emptying or filling a bucket changes the block in front of it
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockDispense(BlockDispenseEvent event)
+    {
+        if (!event.getItem().getType().name().endsWith("BUCKET") || !(event.getBlock().getBlockData() instanceof Directional))
+            return;
+        markChanged(event.getBlock().getRelative(((Directional) event.getBlock().getBlockData()).getFacing()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event)
+    {
+        markChanged(event.getBlock());
+        markChanged(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event)
+    {
+        markChanged(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event)
+    {
+        markChanged(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event)
+    {
+        markMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event)
+    {
+        markMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+    }
+
+    /**
+     * a piston moves the blocks by one block, so the neighbour in both directions might change
+     */
+    private void markMoved(Block piston, List<Block> blocks, BlockFace direction)
+    {
+        if (!isTracking())
+            return;
+        ChunkChangeTracker.markChanged(piston.getRelative(direction));
+        for (Block block : blocks)
+        {
+            ChunkChangeTracker.markChanged(block.getRelative(direction));
+            ChunkChangeTracker.markChanged(block.getRelative(direction.getOppositeFace()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event)
+    {
+        if (!isTracking())
+            return;
+        for (BlockState state : event.getBlocks())
+            ChunkChangeTracker.markChanged(state.getWorld(), state.getX() >> 4, state.getZ() >> 4);
+    }
+}
@@ -165,9 +165,8 @@ public class Commands implements TabExecutor
                         OfflinePlayer offplayer = CannonsUtil.getOfflinePlayer(args[1]);
                         if (offplayer != null && offplayer.hasPlayedBefore()) {
                             sendMessage(sender, ChatColor.GREEN + "Cannon list for " + ChatColor.GOLD + offplayer.getName() + ChatColor.GREEN + ":");
-                            for (Cannon cannon : CannonManager.getCannonList().values()) {
-                                if (cannon.getOwner() != null && cannon.getOwner().equals(offplayer.getUniqueId()))
-                                    sendMessage(sender, ChatColor.GREEN + "Name:" + ChatColor.GOLD + cannon.getCannonName() + ChatColor.GREEN + " design:" + ChatColor.GOLD + cannon.getCannonDesign().getDesignName() + ChatColor.GREEN + " location:" + ChatColor.GOLD + cannon.getOffset().toString());
+                            for (Cannon cannon : CannonManager.getCannonsByOwner(offplayer.getUniqueId())) {
+                                sendMessage(sender, ChatColor.GREEN + "Name:" + ChatColor.GOLD + cannon.getCannonName() + ChatColor.GREEN + " design:" + ChatColor.GOLD + cannon.getCannonDesign().getDesignName() + ChatColor.GREEN + " location:" + ChatColor.GOLD + cannon.getOffset().toString());
                             }
                         }
                     }
@@ -498,11 +497,10 @@ public class Commands implements TabExecutor
                             return true;
                         }
                         sendMessage(sender, ChatColor.GREEN + "Cannon list for " + ChatColor.GOLD + player.getName() + ChatColor.GREEN + ":");
-                        for (Cannon cannon : CannonManager.getCannonList().values())
+                        for (Cannon cannon : CannonManager.getCannonsByOwner(player.getUniqueId()))
                         {
-                            if (cannon.getOwner() != null && cannon.getOwner().equals(player.getUniqueId()))
-                                sendMessage(sender, ChatColor.GREEN + "Name:" + ChatColor.GOLD + cannon.getCannonName() + ChatColor.GREEN + " design:" +
-                                        ChatColor.GOLD + cannon.getCannonDesign().getDesignName() + ChatColor.GREEN + " loc: " + ChatColor.GOLD + cannon.getOffset().toString());
+                            sendMessage(sender, ChatColor.GREEN + "Name:" + ChatColor.GOLD + cannon.getCannonName() + ChatColor.GREEN + " design:" +
+                                    ChatColor.GOLD + cannon.getCannonDesign().getDesignName() + ChatColor.GREEN + " loc: " + ChatColor.GOLD + cannon.getOffset().toString());
                         }
                         //show cannon limit
                         int buildlimit = plugin.getCannonManager().getCannonBuiltLimit(player);
@@ -547,8 +545,8 @@ public class Commands implements TabExecutor
                             return true;
                         }
                         userMessages.sendMessage(MessageEnum.CmdClaimCannonsStarted, player);
+                        //the finished message is sent by the claim task
                         Cannons.getPlugin().getCannonManager().claimCannonsInBox(player.getLocation(), player.getUniqueId());
-                        userMessages.sendMessage(MessageEnum.CmdClaimCannonsFinished, player);
 
                     }
                     //no help message if it is forbidden for this player
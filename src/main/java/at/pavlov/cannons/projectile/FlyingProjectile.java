@@ -2,15 +2,22 @@ package at.pavlov.cannons.projectile;
 
 import at.pavlov.cannons.Enum.ProjectileCause;
 import at.pavlov.cannons.container.MovingObject;
+import at.pavlov.cannons.scheduler.TimingWheel;
+import at.pavlov.cannons.utils.BlockSweep;
+import at.pavlov.cannons.utils.CannonsUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.projectiles.ProjectileSource;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.RayTraceResult;
 import org.bukkit.util.Vector;
 
+import java.lang.ref.WeakReference;
 import java.util.UUID;
 
 
@@ -19,6 +26,8 @@ public class FlyingProjectile
 	private final long spawnTime;
 	
 	private final UUID entityUID;
+    //cached entity of the projectile, resolved again if it is no longer valid
+    private WeakReference<org.bukkit.entity.Projectile> entityRef;
     private UUID shooterUID;
     private UUID worldUID;
     private UUID cannonUID;
@@ -31,22 +40,53 @@ public class FlyingProjectile
     private Location impactBlock;
     private Location lastSmokeTrailLocation;
     //Important for visual splash effect when the cannonball hits the water surface
-    private boolean inWater;
+    private final BlockSweep.LiquidTracker liquid = new BlockSweep.LiquidTracker();
     private boolean wasInWater;
+    //block of the entity at the last water check
+    private long entityBlock = Long.MIN_VALUE;
     //if the teleport was already performed
     private boolean teleported;
     //was the projectile fired by a player, redstone or a sentry
     private ProjectileCause projectileCause;
 
     private MovingObject predictor;
+    //predicted location at the last collision check, the next check sweeps from there to the new location
+    private double sweptX;
+    private double sweptY;
+    private double sweptZ;
+    //number of updates of the predicted location since the projectile was fired
+    private int flightTicks;
+    //path calculated when the projectile was fired, null if it is not available or no longer valid
+    private volatile PrecomputedTrajectory trajectory;
     private boolean hasDetonated = false;
+    //time fuse of the projectile, null if it has none
+    private TimingWheel.Timer fuse;
+    //a virtual projectile has no entity, it is only simulated and rendered with particles
+    private final boolean virtual;
 
 
 	public FlyingProjectile(Projectile projectile, org.bukkit.entity.Projectile projectile_entity, UUID shooterUID, org.bukkit.projectiles.ProjectileSource source, Location playerLoc, UUID cannonId, ProjectileCause projectileCause)
 	{
+        this(projectile, projectile_entity.getUniqueId(), projectile_entity.getLocation(), projectile_entity.getVelocity(), shooterUID, source, playerLoc, cannonId, projectileCause, false);
+        this.entityRef = new WeakReference<>(projectile_entity);
+        if (source != null)
+            projectile_entity.setShooter(source);
+    }
+
+    /**
+     * creates a virtual projectile. It has no entity and is only simulated by the predicted movement
+     */
+    public FlyingProjectile(Projectile projectile, Location spawnLoc, Vector velocity, UUID shooterUID, org.bukkit.projectiles.ProjectileSource source, Location playerLoc, UUID cannonId, ProjectileCause projectileCause)
+    {
+        this(projectile, UUID.randomUUID(), spawnLoc, velocity, shooterUID, source, playerLoc, cannonId, projectileCause, true);
+    }
+
+    private FlyingProjectile(Projectile projectile, UUID entityUID, Location new_loc, Vector velocity, UUID shooterUID, org.bukkit.projectiles.ProjectileSource source, Location playerLoc, UUID cannonId, ProjectileCause projectileCause, boolean virtual)
+    {
         //Validate.notNull(shooterUID, "shooterUID for the projectile can't be null");
-        this.entityUID = projectile_entity.getUniqueId();
-        this.worldUID = projectile_entity.getWorld().getUID();
+        this.entityUID = entityUID;
+        this.worldUID = new_loc.getWorld().getUID();
+        this.virtual = virtual;
 
         this.wasInWater = this.isInWater();
 		this.projectile = projectile;
@@ -54,16 +94,14 @@ public class FlyingProjectile
         this.shooterUID = shooterUID;
         this.playerlocation = playerLoc;
         this.source = source;
-        if (source != null)
-            projectile_entity.setShooter(source);
         this.projectileCause = projectileCause;
 
 		this.spawnTime = System.currentTimeMillis();
         this.teleported = false;
 
         //set location and speed
-        Location new_loc = projectile_entity.getLocation();
-        predictor = new MovingObject(new_loc, projectile_entity.getVelocity(), projectile.getProjectileEntity());
+        predictor = new MovingObject(new_loc, velocity, projectile.getProjectileEntity());
+        resetSweep();
 
         this.lastSmokeTrailLocation = new_loc;
     }
@@ -73,17 +111,26 @@ public class FlyingProjectile
         return shooterUID;
     }
 
-    /*
-     * Returns the entity of the flying projectile
-     * This is time consuming, the projectile should be cached
-     * @return
+    /**
+     * Returns the entity of the flying projectile. The entity is cached and only searched in the world again
+     * if the cached entity is no longer valid (e.g. the chunk was reloaded)
+     * @return entity of the projectile or null if it does not exist
      */
 	public org.bukkit.entity.Projectile getProjectileEntity()
 	{
-        Entity entity = Bukkit.getWorld(worldUID).getEntity(entityUID);
+        if (virtual)
+            return null;
+        org.bukkit.entity.Projectile cached = entityRef != null ? entityRef.get() : null;
+        if (cached != null && cached.isValid())
+            return cached;
+
+        World world = Bukkit.getWorld(worldUID);
+        Entity entity = world != null ? world.getEntity(entityUID) : null;
         if (entity instanceof org.bukkit.entity.Projectile projectileEntity) {
+            entityRef = new WeakReference<>(projectileEntity);
             return projectileEntity;
         }
+        entityRef = null;
         return null;
         /*
         for (Entity entity : world.getEntitiesByClass(org.bukkit.entity.Projectile.class)) {
@@ -115,9 +162,16 @@ public class FlyingProjectile
      */
     private boolean isInWaterCheck(org.bukkit.entity.Projectile projectile_entity)
     {
+        if (virtual)
+        {
+            Material type = predictor.getBlockType();
+            return type == Material.WATER || type == Material.LAVA;
+        }
         if(projectile_entity!=null)
         {
-            Block block = projectile_entity.getLocation().getBlock();
+            Location loc = projectile_entity.getLocation();
+            entityBlock = CannonsUtil.toBlockKey(loc);
+            Block block = loc.getBlock();
             if (block != null)
             {
                 return block.isLiquid();
@@ -127,7 +181,7 @@ public class FlyingProjectile
     }
 
     public boolean isInWater() {
-        return inWater;
+        return liquid.isInLiquid();
     }
 
     /**
@@ -139,17 +193,31 @@ public class FlyingProjectile
     }
 
     /**
-     * returns if the projectile has entered the water surface and updates also inWater
+     * returns if the projectile has entered the water surface and updates also inWater. Only needed if the projectile
+     * is not following the predicted path, otherwise the water is found by sweepBlocks
      * @return true if the projectile has entered water
      */
     public boolean updateWaterSurfaceCheck(org.bukkit.entity.Projectile projectile_entity)
     {
         boolean isSurface = isWaterSurface(projectile_entity);
-        inWater = isInWaterCheck(projectile_entity);
-        wasInWater = inWater;
+        liquid.setInLiquid(isInWaterCheck(projectile_entity));
+        wasInWater = liquid.isInLiquid();
         return isSurface;
     }
 
+    /**
+     * returns the point where the projectile has entered a liquid during the last sweepBlocks
+     * @return the surface hit or null if the projectile has not entered a liquid
+     */
+    public BlockSweep.Hit getWaterSurface()
+    {
+        return liquid.getSurface();
+    }
+
+    long getEntityBlock() {
+        return entityBlock;
+    }
+
     public boolean wasInWater() {
         return wasInWater;
     }
@@ -171,10 +239,13 @@ public class FlyingProjectile
     /**
      * if the projectile is still alive and valid
      * a projectile is valid if it has an entity, is not below -64 and younger than 1h (60*60*1000)
+     * a virtual projectile has no entity
      * @return returns false if the projectile entity is null
      */
     public boolean isValid(org.bukkit.entity.Projectile projectile_entity)
     {
+        if (virtual)
+            return predictor.getBlockY() > -64 && System.currentTimeMillis() < getSpawnTime() + 3600000;
         return (projectile_entity != null && projectile_entity.getLocation().getBlockY() > -64 && System.currentTimeMillis() < getSpawnTime() + 3600000);
     }
 
@@ -184,6 +255,167 @@ public class FlyingProjectile
     public void update()
     {
         predictor.updateProjectileLocation(isInWater());
+        flightTicks++;
+    }
+
+    /**
+     * sets the predicted location and velocity after one update
+     */
+    void setPredictedState(double x, double y, double z, double velX, double velY, double velZ)
+    {
+        predictor.setState(x, y, z, velX, velY, velZ);
+        flightTicks++;
+    }
+
+    /**
+     * checks all blocks the projectile has passed since the last check and returns the first solid block.
+     * Only blocks which the projectile has entered are read, the same blocks tell if the projectile has entered or
+     * left water. If there is a valid precomputed trajectory for this movement, the result of the trajectory is used instead
+     * @return the hit or null if the projectile has not hit a block
+     */
+    public BlockSweep.Hit sweepBlocks()
+    {
+        PrecomputedTrajectory path = trajectory;
+        if (path != null)
+        {
+            if (!isInWater() && path.isValid(flightTicks, sweptX, sweptZ, predictor.getX(), predictor.getZ()))
+            {
+                resetSweep();
+                liquid.update(path.isInLiquid(flightTicks), path.getSurface(flightTicks));
+                wasInWater = liquid.isInLiquid();
+                return path.getHit(flightTicks);
+            }
+            //the projectile has left the precomputed path or the world has changed, check the blocks from now on
+            trajectory = null;
+        }
+
+        World world = predictor.getWorldBukkit();
+        BlockSweep.Hit hit = BlockSweep.sweepLiquids(world::getType, liquid, sweptX, sweptY, sweptZ, predictor.getX(), predictor.getY(), predictor.getZ());
+        wasInWater = liquid.isInLiquid();
+        resetSweep();
+        return hit;
+    }
+
+    /**
+     * skips the block check if the movement since the last check has not left the block of the last check.
+     * sweepBlocks would not read any block, since the start block of a sweep is not checked
+     */
+    public void skipBlockCheck()
+    {
+        liquid.update(liquid.isInLiquid(), null);
+        resetSweep();
+    }
+
+    /**
+     * returns true if an entity or target in the grid is near the movement of the projectile since the last block check
+     * @param grid entities and targets near the projectile
+     * @param radius distance of the entity center to the movement
+     * @return true if an entity or target is in the radius
+     */
+    public boolean isNearEntity(ProximityGrid grid, double radius)
+    {
+        return grid.findFirstContact(predictor.getWorld(), sweptX, sweptY, sweptZ, predictor.getX(), predictor.getY(), predictor.getZ(),
+                radius, shooterUID) >= 0.0;
+    }
+
+    /**
+     * finds the first living entity on the movement of the projectile since the last block check.
+     * Has to be called before the blocks are checked
+     * @param raySize the entity is hit if the ray is closer than this
+     * @return the hit entity and position or null
+     */
+    public RayTraceResult findEntityHit(double raySize)
+    {
+        World world = predictor.getWorldBukkit();
+        Vector direction = new Vector(predictor.getX() - sweptX, predictor.getY() - sweptY, predictor.getZ() - sweptZ);
+        double length = direction.length();
+        if (world == null || length < 1.0E-6)
+            return null;
+
+        RayTraceResult result = world.rayTraceEntities(new Location(world, sweptX, sweptY, sweptZ), direction.multiply(1.0 / length), length, raySize,
+                entity -> entity instanceof LivingEntity && entity.isValid() && !entity.getUniqueId().equals(shooterUID));
+        return result != null && result.getHitEntity() != null ? result : null;
+    }
+
+    /**
+     * returns the box around the movement of the projectile since the last block check
+     * @return box around the movement
+     */
+    public BoundingBox getMovementBox()
+    {
+        return new BoundingBox(sweptX, sweptY, sweptZ, predictor.getX(), predictor.getY(), predictor.getZ());
+    }
+
+    /**
+     * returns true if the projectile has a proximity fuse and the arming time has passed
+     * @return true if the proximity fuse can detonate the projectile
+     */
+    public boolean isProximityFuseArmed()
+    {
+        return projectile.hasProximityFuse() && flightTicks >= projectile.getProximityFuseArmingTime() * 20.0;
+    }
+
+    /**
+     * finds the first point on the movement of the projectile since the last block check where an entity or target
+     * is within the radius of the proximity fuse. Has to be called before the blocks are checked
+     * @param grid entities and targets near the projectile
+     * @return the point where the fuse is triggered or null
+     */
+    public Vector findProximityHit(ProximityGrid grid)
+    {
+        if (!isProximityFuseArmed())
+            return null;
+        double t = grid.findFirstContact(predictor.getWorld(), sweptX, sweptY, sweptZ, predictor.getX(), predictor.getY(), predictor.getZ(),
+                projectile.getProximityFuseRadius(), shooterUID);
+        if (t < 0.0)
+            return null;
+        return new Vector(sweptX + t * (predictor.getX() - sweptX), sweptY + t * (predictor.getY() - sweptY), sweptZ + t * (predictor.getZ() - sweptZ));
+    }
+
+    /**
+     * moves the predicted location to the point where the projectile has hit a block or entity
+     */
+    public void moveToImpact(double x, double y, double z)
+    {
+        predictor.setState(x, y, z, predictor.getVelX(), predictor.getVelY(), predictor.getVelZ());
+        resetSweep();
+    }
+
+    private void resetSweep()
+    {
+        sweptX = predictor.getX();
+        sweptY = predictor.getY();
+        sweptZ = predictor.getZ();
+    }
+
+    void setTrajectory(PrecomputedTrajectory trajectory)
+    {
+        this.trajectory = trajectory;
+    }
+
+    public PrecomputedTrajectory getTrajectory()
+    {
+        return trajectory;
+    }
+
+    double getSweptX()
+    {
+        return sweptX;
+    }
+
+    double getSweptY()
+    {
+        return sweptY;
+    }
+
+    double getSweptZ()
+    {
+        return sweptZ;
+    }
+
+    MovingObject getPredictor()
+    {
+        return predictor;
     }
 
     /**
@@ -192,6 +424,7 @@ public class FlyingProjectile
     public void revertUpdate()
     {
         predictor.revertProjectileLocation(isInWater());
+        flightTicks--;
     }
 
     /**
@@ -204,12 +437,21 @@ public class FlyingProjectile
     }
 
     /**
-     * returns actual location of the projectile
+     * returns actual location of the projectile, for virtual projectiles the predicted location
      * @return momentary position of the projectile
      */
     public Location getActualLocation(org.bukkit.entity.Projectile projectile_entity)
     {
-        return projectile_entity.getLocation();
+        return projectile_entity != null ? projectile_entity.getLocation() : predictor.getLocation();
+    }
+
+    /**
+     * returns actual velocity of the projectile, for virtual projectiles the predicted velocity
+     * @return momentary velocity of the projectile
+     */
+    public Vector getActualVelocity(org.bukkit.entity.Projectile projectile_entity)
+    {
+        return projectile_entity != null ? projectile_entity.getVelocity() : predictor.getVel();
     }
 
     /**
@@ -218,7 +460,8 @@ public class FlyingProjectile
      */
     public double distanceToProjectile(org.bukkit.entity.Projectile projectile_entity)
     {
-        return projectile_entity.getLocation().toVector().distance(predictor.getLoc());
+        Location loc = projectile_entity.getLocation();
+        return Math.sqrt(predictor.distanceSquared(loc.getX(), loc.getY(), loc.getZ()));
     }
 
     /**
@@ -241,6 +484,8 @@ public class FlyingProjectile
     {
         this.predictor.setLocation(loc);
         this.predictor.setVel(vel);
+        this.trajectory = null;
+        resetSweep();
         teleportToPrediction(getProjectileEntity());
     }
 
@@ -258,6 +503,25 @@ public class FlyingProjectile
         return this.getUID().equals(obj2.getUID());
     }
 
+    public void setFuse(TimingWheel.Timer fuse)
+    {
+        this.fuse = fuse;
+    }
+
+    /**
+     * stops the time fuse, e.g. if the projectile has already exploded
+     */
+    public void cancelFuse()
+    {
+        if (fuse != null)
+            fuse.cancel();
+    }
+
+    public boolean isVirtual()
+    {
+        return virtual;
+    }
+
     public UUID getUID()
     {
         return entityUID;
@@ -0,0 +1,102 @@
+package at.pavlov.cannons.projectile;
+
+import at.pavlov.cannons.utils.BlockSweep;
+import at.pavlov.cannons.utils.ChunkChangeTracker;
+import org.bukkit.Location;
+
+import java.util.UUID;
+
+
+/**
+ * path of a projectile calculated from chunk snapshots when it was fired. Up to the last tick of the path the
+ * projectile does not need to check the blocks it passes, as long as the chunks along the path were not changed.
+ */
+public class PrecomputedTrajectory
+{
+    private final UUID world;
+    //time when the chunk snapshots were taken
+    private final long snapshotTime;
+    //last tick of the flight covered by this trajectory
+    private final int lastTick;
+    //tick when the projectile hits a block, -1 if the projectile does not hit a block within the trajectory
+    private final int impactTick;
+    private final BlockSweep.Hit hit;
+    //point where the projectile enters a liquid in the last tick, null if it stays in the air
+    private final BlockSweep.Hit surface;
+    //the projectile is in a liquid at the end of the last tick
+    private final boolean inLiquid;
+
+    PrecomputedTrajectory(UUID world, long snapshotTime, int lastTick, int impactTick, BlockSweep.Hit hit)
+    {
+        this(world, snapshotTime, lastTick, impactTick, hit, null, false);
+    }
+
+    PrecomputedTrajectory(UUID world, long snapshotTime, int lastTick, int impactTick, BlockSweep.Hit hit, BlockSweep.Hit surface, boolean inLiquid)
+    {
+        this.world = world;
+        this.snapshotTime = snapshotTime;
+        this.lastTick = lastTick;
+        this.impactTick = impactTick;
+        this.hit = hit;
+        this.surface = surface;
+        this.inLiquid = inLiquid;
+    }
+
+    /**
+     * returns true if the movement of the projectile from the start to the end point in this tick is covered by the
+     * trajectory and the chunks of this movement have not changed since the snapshot
+     * @param tick flight tick of the end point
+     * @return true if the precomputed result can be used for this tick
+     */
+    public boolean isValid(int tick, double startX, double startZ, double endX, double endZ)
+    {
+        if (tick > lastTick)
+            return false;
+        int startChunkX = Location.locToBlock(startX) >> 4;
+        int startChunkZ = Location.locToBlock(startZ) >> 4;
+        int endChunkX = Location.locToBlock(endX) >> 4;
+        int endChunkZ = Location.locToBlock(endZ) >> 4;
+        return !ChunkChangeTracker.hasChanged(world, Math.min(startChunkX, endChunkX), Math.min(startChunkZ, endChunkZ),
+                Math.max(startChunkX, endChunkX), Math.max(startChunkZ, endChunkZ), snapshotTime);
+    }
+
+    /**
+     * returns the block hit in this tick
+     * @param tick flight tick
+     * @return the hit or null if the projectile does not hit a block in this tick
+     */
+    public BlockSweep.Hit getHit(int tick)
+    {
+        return tick == impactTick ? hit : null;
+    }
+
+    /**
+     * returns the point where the projectile enters a liquid in this tick
+     * @param tick flight tick
+     * @return the surface hit or null if the projectile does not enter a liquid in this tick
+     */
+    public BlockSweep.Hit getSurface(int tick)
+    {
+        return tick == lastTick ? surface : null;
+    }
+
+    /**
+     * returns true if the projectile is in a liquid after this tick
+     * @param tick flight tick
+     * @return true if the projectile is in a liquid
+     */
+    public boolean isInLiquid(int tick)
+    {
+        return tick == lastTick && inLiquid;
+    }
+
+    public int getLastTick()
+    {
+        return lastTick;
+    }
+
+    public int getImpactTick()
+    {
+        return impactTick;
+    }
+}
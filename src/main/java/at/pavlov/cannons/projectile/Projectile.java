@@ -32,6 +32,8 @@ public class Projectile implements Cloneable{
 	private double velocity;
 	private double penetration;
 	private double timefuse;
+	private double proximityFuseRadius;
+	private double proximityFuseArmingTime;
 	private double automaticFiringDelay;
 	private int automaticFiringMagazineSize;
 	private int numberOfBullets;
@@ -270,6 +272,36 @@ public class Projectile implements Cloneable{
 	}
 
 
+	public boolean hasProximityFuse()
+	{
+		return proximityFuseRadius > 0.0;
+	}
+
+
+	public double getProximityFuseRadius()
+	{
+		return proximityFuseRadius;
+	}
+
+
+	public void setProximityFuseRadius(double proximityFuseRadius)
+	{
+		this.proximityFuseRadius = proximityFuseRadius;
+	}
+
+
+	public double getProximityFuseArmingTime()
+	{
+		return proximityFuseArmingTime;
+	}
+
+
+	public void setProximityFuseArmingTime(double proximityFuseArmingTime)
+	{
+		this.proximityFuseArmingTime = proximityFuseArmingTime;
+	}
+
+
 	public int getNumberOfBullets()
 	{
 		return numberOfBullets;
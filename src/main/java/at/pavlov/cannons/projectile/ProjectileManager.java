@@ -2,7 +2,7 @@ package at.pavlov.cannons.projectile;
 
 import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.Enum.ProjectileCause;
-import at.pavlov.cannons.utils.DelayedTask;
+import at.pavlov.cannons.scheduler.TimingWheel;
 import org.apache.commons.lang3.Validate;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -18,6 +18,7 @@ public class ProjectileManager
 
     private final Cannons plugin;
     private final ConcurrentHashMap<UUID, FlyingProjectile> flyingProjectilesMap = new ConcurrentHashMap<>();
+    private final TrajectoryPredictor trajectoryPredictor;
 
     /**
      * ProjectileManager
@@ -26,13 +27,25 @@ public class ProjectileManager
     public ProjectileManager(Cannons plugin)
     {
         this.plugin = plugin;
+        this.trajectoryPredictor = new TrajectoryPredictor(plugin);
     }
 
+    /**
+     * spawns a projectile and adds it to the flying projectiles
+     * @return the entity of the projectile, null if the projectile is virtual
+     */
     public org.bukkit.entity.Projectile spawnProjectile(Projectile projectile, UUID shooter, org.bukkit.projectiles.ProjectileSource source, Location playerLoc, Location spawnLoc, Vector velocity, UUID cannonId, ProjectileCause projectileCause)
     {
         Validate.notNull(shooter, "shooter for the projectile can't be null");
         World world = spawnLoc.getWorld();
 
+        if (isVirtual(projectile))
+        {
+            FlyingProjectile cannonball = new FlyingProjectile(projectile, spawnLoc.clone(), velocity.clone(), shooter, source, playerLoc, cannonId, projectileCause);
+            addFlyingProjectile(cannonball);
+            return null;
+        }
+
         //set yaw, pitch for fireballs
         double v = velocity.length();
         spawnLoc.setPitch((float) (Math.acos(velocity.getY()/v)*180.0/Math.PI - 90));
@@ -63,14 +76,32 @@ public class ProjectileManager
 
         //create a new flying projectile container
         FlyingProjectile cannonball = new FlyingProjectile(projectile, projectileEntity, shooter, source, playerLoc, cannonId, projectileCause);
+        addFlyingProjectile(cannonball);
+
+        return projectileEntity;
+    }
 
+    /**
+     * virtual projectiles have no entity. Projectiles a player is following always need an entity
+     * @param projectile type of the projectile
+     * @return true if the projectile will be virtual
+     */
+    private boolean isVirtual(Projectile projectile)
+    {
+        return plugin.getMyConfig().isVirtualProjectilesEnabled() && !projectile.hasProperty(ProjectileProperties.HUMAN_CANNONBALL)
+                && !projectile.hasProperty(ProjectileProperties.OBSERVER) && !projectile.hasProperty(ProjectileProperties.SHOOTER_AS_PASSENGER);
+    }
 
+    private void addFlyingProjectile(FlyingProjectile cannonball)
+    {
         flyingProjectilesMap.put(cannonball.getUID(), cannonball);
 
+        //the path is only used by the keep alive update, virtual projectiles are always updated
+        if ((plugin.getMyConfig().isKeepAliveEnabled() || cannonball.isVirtual()) && plugin.getMyConfig().isPrecomputeTrajectory())
+            trajectoryPredictor.precompute(cannonball);
+
         //detonate timefused projectiles
         detonateTimefuse(cannonball);
-
-        return projectileEntity;
     }
 
 
@@ -84,25 +115,24 @@ public class ProjectileManager
         if (cannonball.getProjectile().getTimefuse() > 0)
         {
 
-            //Delayed Task
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin,  new DelayedTask(cannonball.getUID())
-            {
-                public void run(Object object)
-                {
-                    //find given UID in list
-                    FlyingProjectile fproj = flyingProjectilesMap.get(object);
-
-                    if(fproj != null) {
-                        //detonate timefuse
-                        org.bukkit.entity.Projectile projectile_entity = fproj.getProjectileEntity();
-                        //the projectile might be null
-                        if (projectile_entity != null) {
-                            plugin.getExplosion().detonate(cannonball, projectile_entity, null);
+            //Delayed Task, the projectile is detonated by the region it is in at this time
+            TimingWheel.Timer fuse = plugin.getTimingWheel().schedule(() -> plugin.getRegionTaskScheduler().runAt(cannonball.getExpectedLocation(), () -> {
+                //find given UID in list
+                FlyingProjectile fproj = flyingProjectilesMap.get(cannonball.getUID());
+
+                if(fproj != null) {
+                    //detonate timefuse
+                    org.bukkit.entity.Projectile projectile_entity = fproj.getProjectileEntity();
+                    //the projectile might be null
+                    if (projectile_entity != null || fproj.isVirtual()) {
+                        plugin.getExplosion().detonate(cannonball, projectile_entity, null);
+                        if (projectile_entity != null)
                             projectile_entity.remove();
-                        }
-                        flyingProjectilesMap.remove(cannonball.getUID());
                     }
-                }}, (long) (cannonball.getProjectile().getTimefuse()*20));
+                    flyingProjectilesMap.remove(cannonball.getUID());
+                }
+            }), (long) (cannonball.getProjectile().getTimefuse()*20));
+            cannonball.setFuse(fuse);
         }
     }
 
@@ -210,6 +210,8 @@ public class ProjectileStorage
 		projectile.setPenetration(projectileConfig.getDouble("cannonball.penetration", 0.0));
 		projectile.setPenetrationDamage(projectileConfig.getBoolean("cannonball.doesPenetrationDamage", true));
 		projectile.setTimefuse(projectileConfig.getDouble("cannonball.timefuse", 0.0));
+		projectile.setProximityFuseRadius(projectileConfig.getDouble("cannonball.proximityFuseRadius", 0.0));
+		projectile.setProximityFuseArmingTime(projectileConfig.getDouble("cannonball.proximityFuseArmingTime", 0.5));
 		projectile.setAutomaticFiringDelay(projectileConfig.getDouble("cannonball.automaticFiringDelay", 1.0));
 		projectile.setAutomaticFiringMagazineSize(projectileConfig.getInt("cannonball.automaticFiringMagazineSize", 1));
 		projectile.setCharges(projectileConfig.getInt("cannonball.numberOfCharges", 1)); // CCNet
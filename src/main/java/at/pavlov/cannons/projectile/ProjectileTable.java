@@ -0,0 +1,267 @@
+package at.pavlov.cannons.projectile;
+
+import at.pavlov.cannons.container.MovingObject;
+import at.pavlov.cannons.utils.CannonsUtil;
+import org.bukkit.Location;
+
+import java.util.Arrays;
+
+
+/**
+ * location and velocity of many flying projectiles stored as parallel arrays. The table is filled with the state of
+ * all projectiles at the start of an update. One loop over the table finds the few projectiles which need a check
+ * with the world (a new block on the path, an entity too far from the predicted location, ...), all other projectiles
+ * are only moved. The predicted movement is calculated in one loop and written back to the projectiles, so the update
+ * does not create any Location or Vector objects. A table is not thread safe and should be used by one thread only.
+ */
+public class ProjectileTable
+{
+    private static final int INITIAL_CAPACITY = 64;
+    //projectiles below this height are removed
+    private static final int MIN_HEIGHT = -64;
+
+    //the projectile follows the predicted path
+    private static final int PREDICTED = 1;
+    //the entity is missing or the projectile is below the world
+    private static final int INVALID = 1 << 1;
+    //the movement since the last block check has left the block of the last check
+    private static final int ENTERED_BLOCK = 1 << 2;
+    //the entity is too far from the predicted location
+    private static final int TELEPORT = 1 << 3;
+    //the entity has moved to a different block since its last water check
+    private static final int ENTITY_ENTERED_BLOCK = 1 << 4;
+    //the projectile was removed during the update
+    private static final int REMOVED = 1 << 5;
+
+    private FlyingProjectile[] projectiles = new FlyingProjectile[INITIAL_CAPACITY];
+    private org.bukkit.entity.Projectile[] entities = new org.bukkit.entity.Projectile[INITIAL_CAPACITY];
+    private int[] flags = new int[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private double[] velX = new double[INITIAL_CAPACITY];
+    private double[] velY = new double[INITIAL_CAPACITY];
+    private double[] velZ = new double[INITIAL_CAPACITY];
+    private double[] drag = new double[INITIAL_CAPACITY];
+    private double[] gravity = new double[INITIAL_CAPACITY];
+    private double[] sweptX = new double[INITIAL_CAPACITY];
+    private double[] sweptY = new double[INITIAL_CAPACITY];
+    private double[] sweptZ = new double[INITIAL_CAPACITY];
+    private double[] entityX = new double[INITIAL_CAPACITY];
+    private double[] entityY = new double[INITIAL_CAPACITY];
+    private double[] entityZ = new double[INITIAL_CAPACITY];
+    private long[] entityBlock = new long[INITIAL_CAPACITY];
+    private int size;
+    //reused to read the location of the entities
+    private final Location entityLocation = new Location(null, 0, 0, 0);
+
+    /**
+     * adds the state of this projectile to the table
+     * @param cannonball projectile to add
+     * @param entity entity of the projectile, null if it is virtual or missing
+     * @param predicted true if the projectile follows the predicted path
+     * @param expired true if the projectile is too old
+     */
+    public void add(FlyingProjectile cannonball, org.bukkit.entity.Projectile entity, boolean predicted, boolean expired)
+    {
+        if (size == projectiles.length)
+            grow();
+
+        MovingObject predictor = cannonball.getPredictor();
+        projectiles[size] = cannonball;
+        entities[size] = entity;
+        x[size] = predictor.getX();
+        y[size] = predictor.getY();
+        z[size] = predictor.getZ();
+        velX[size] = predictor.getVelX();
+        velY[size] = predictor.getVelY();
+        velZ[size] = predictor.getVelZ();
+        drag[size] = predictor.getDrag(cannonball.isInWater());
+        gravity[size] = predictor.getGravity();
+        sweptX[size] = cannonball.getSweptX();
+        sweptY[size] = cannonball.getSweptY();
+        sweptZ[size] = cannonball.getSweptZ();
+        entityBlock[size] = cannonball.getEntityBlock();
+
+        int flag = predicted ? PREDICTED : 0;
+        if (expired || (entity == null && !cannonball.isVirtual()))
+            flag |= INVALID;
+        if (entity != null)
+        {
+            entity.getLocation(entityLocation);
+            entityX[size] = entityLocation.getX();
+            entityY[size] = entityLocation.getY();
+            entityZ[size] = entityLocation.getZ();
+        }
+        else
+        {
+            //a virtual projectile is where it is predicted
+            entityX[size] = x[size];
+            entityY[size] = y[size];
+            entityZ[size] = z[size];
+        }
+        flags[size] = flag;
+        size++;
+    }
+
+    /**
+     * finds the projectiles which need a check with the world in this update
+     * @param teleportDistance an entity further away from its predicted location is teleported
+     */
+    public void check(double teleportDistance)
+    {
+        double teleportDistanceSquared = teleportDistance * teleportDistance;
+        for (int i = 0; i < size; i++)
+        {
+            int flag = flags[i];
+            int blockX = Location.locToBlock(entityX[i]);
+            int blockY = Location.locToBlock(entityY[i]);
+            int blockZ = Location.locToBlock(entityZ[i]);
+            if (blockY <= MIN_HEIGHT)
+                flag |= INVALID;
+
+            if ((flag & PREDICTED) != 0)
+            {
+                //the block sweep does not read the start block, so it only finds something after a new block was entered
+                if (Location.locToBlock(sweptX[i]) != Location.locToBlock(x[i]) || Location.locToBlock(sweptY[i]) != Location.locToBlock(y[i])
+                        || Location.locToBlock(sweptZ[i]) != Location.locToBlock(z[i]))
+                    flag |= ENTERED_BLOCK;
+                double dx = entityX[i] - x[i];
+                double dy = entityY[i] - y[i];
+                double dz = entityZ[i] - z[i];
+                if (entities[i] != null && dx * dx + dy * dy + dz * dz > teleportDistanceSquared)
+                    flag |= TELEPORT;
+            }
+            else if (entities[i] != null && entityBlock[i] != CannonsUtil.toBlockKey(blockX, blockY, blockZ))
+                flag |= ENTITY_ENTERED_BLOCK;
+            flags[i] = flag;
+        }
+    }
+
+    /**
+     * calculates the next tick for all predicted projectiles in the table, same as MovingObject.updateProjectileLocation
+     */
+    public void step()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            //update location
+            x[i] += velX[i];
+            y[i] += velY[i];
+            z[i] += velZ[i];
+            //slow down projectile and apply gravity
+            double f = drag[i];
+            velX[i] *= f;
+            velY[i] = velY[i] * f - gravity[i];
+            velZ[i] *= f;
+        }
+    }
+
+    /**
+     * writes the new location and velocity back to the predicted projectiles which were not removed and empties the table
+     */
+    public void store()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if ((flags[i] & (PREDICTED | REMOVED)) == PREDICTED)
+                projectiles[i].setPredictedState(x[i], y[i], z[i], velX[i], velY[i], velZ[i]);
+        }
+        clear();
+    }
+
+    /**
+     * removes all projectiles from the table
+     */
+    public void clear()
+    {
+        Arrays.fill(projectiles, 0, size, null);
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public FlyingProjectile getProjectile(int i)
+    {
+        return projectiles[i];
+    }
+
+    public org.bukkit.entity.Projectile getEntity(int i)
+    {
+        return entities[i];
+    }
+
+    public boolean isPredicted(int i)
+    {
+        return (flags[i] & PREDICTED) != 0;
+    }
+
+    public boolean isInvalid(int i)
+    {
+        return (flags[i] & INVALID) != 0;
+    }
+
+    public boolean hasEnteredBlock(int i)
+    {
+        return (flags[i] & ENTERED_BLOCK) != 0;
+    }
+
+    public boolean isTeleportNeeded(int i)
+    {
+        return (flags[i] & TELEPORT) != 0;
+    }
+
+    public boolean hasEntityEnteredBlock(int i)
+    {
+        return (flags[i] & ENTITY_ENTERED_BLOCK) != 0;
+    }
+
+    /**
+     * returns the squared distance of the predicted location to a point
+     * @param i row of the projectile
+     * @return squared distance
+     */
+    public double distanceSquared(int i, double px, double py, double pz)
+    {
+        double dx = x[i] - px;
+        double dy = y[i] - py;
+        double dz = z[i] - pz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * the projectile was removed, its predicted location is not stored
+     * @param i row of the projectile
+     */
+    public void remove(int i)
+    {
+        flags[i] |= REMOVED;
+    }
+
+    private void grow()
+    {
+        int capacity = projectiles.length * 2;
+        projectiles = Arrays.copyOf(projectiles, capacity);
+        entities = Arrays.copyOf(entities, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        velZ = Arrays.copyOf(velZ, capacity);
+        drag = Arrays.copyOf(drag, capacity);
+        gravity = Arrays.copyOf(gravity, capacity);
+        sweptX = Arrays.copyOf(sweptX, capacity);
+        sweptY = Arrays.copyOf(sweptY, capacity);
+        sweptZ = Arrays.copyOf(sweptZ, capacity);
+        entityX = Arrays.copyOf(entityX, capacity);
+        entityY = Arrays.copyOf(entityY, capacity);
+        entityZ = Arrays.copyOf(entityZ, capacity);
+        entityBlock = Arrays.copyOf(entityBlock, capacity);
+    }
+}
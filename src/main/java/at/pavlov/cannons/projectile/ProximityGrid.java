@@ -0,0 +1,184 @@
+package at.pavlov.cannons.projectile;
+
+import at.pavlov.cannons.TargetManager;
+import at.pavlov.cannons.container.Target;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * positions of all living entities and targets near proximity fused and virtual projectiles. The grid is built once per tick for
+ * all projectiles of an update, so every projectile only checks the few cells along its movement instead of asking
+ * the world for nearby entities. A grid is not thread safe and should be used by one thread only.
+ */
+public class ProximityGrid
+{
+    //size of one grid cell in blocks
+    private static final int CELL_SHIFT = 4;
+    //the areas of projectiles in the same section are merged into one lookup
+    private static final int SECTION_SHIFT = 8;
+
+    private static class Point
+    {
+        private final UUID uid;
+        private final double x, y, z;
+
+        private Point(UUID uid, double x, double y, double z)
+        {
+            this.uid = uid;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    //world -> section key -> area covered by the projectiles in this section
+    private final Map<World, Map<Long, BoundingBox>> areas = new HashMap<>();
+    //world -> cell key -> points in this cell
+    private final Map<UUID, Map<Long, List<Point>>> cells = new HashMap<>();
+
+    /**
+     * removes all areas and points
+     */
+    public void clear()
+    {
+        areas.clear();
+        cells.clear();
+    }
+
+    /**
+     * returns true if no area was added since the last clear
+     * @return true if there is nothing to build
+     */
+    public boolean isEmpty()
+    {
+        return areas.isEmpty();
+    }
+
+    /**
+     * adds the movement of a projectile to the area which is searched for entities and targets
+     * @param cannonball projectile with a proximity fuse or a virtual projectile
+     * @param radius entities and targets in this distance to the movement are found
+     */
+    public void addArea(FlyingProjectile cannonball, double radius)
+    {
+        World world = cannonball.getWorld();
+        if (world == null)
+            return;
+        BoundingBox box = cannonball.getMovementBox().expand(radius);
+        long key = getCellKey(Location.locToBlock(box.getCenterX()) >> SECTION_SHIFT, Location.locToBlock(box.getCenterZ()) >> SECTION_SHIFT);
+        Map<Long, BoundingBox> worldAreas = areas.computeIfAbsent(world, k -> new HashMap<>());
+        BoundingBox area = worldAreas.get(key);
+        if (area == null)
+            worldAreas.put(key, box);
+        else
+            area.union(box);
+    }
+
+    /**
+     * collects the living entities and targets in the added areas. Every merged area is one entity lookup
+     */
+    public void build()
+    {
+        for (Map.Entry<World, Map<Long, BoundingBox>> worldAreas : areas.entrySet())
+        {
+            World world = worldAreas.getKey();
+            for (BoundingBox area : worldAreas.getValue().values())
+            {
+                for (Entity entity : world.getNearbyEntities(area, entity -> entity instanceof LivingEntity))
+                {
+                    if (!entity.isValid() || (entity instanceof Player && ((Player) entity).getGameMode() == GameMode.SPECTATOR))
+                        continue;
+                    Location loc = entity.getLocation();
+                    add(world.getUID(), entity.getUniqueId(), loc.getX(), loc.getY() + entity.getHeight() / 2.0, loc.getZ());
+                }
+
+                Location center = area.getCenter().toLocation(world);
+                for (Target target : TargetManager.getTargetsInBox(center, area.getWidthX(), area.getHeight(), area.getWidthZ()))
+                {
+                    Location loc = target.getCenterLocation();
+                    add(world.getUID(), target.getUniqueId(), loc.getX(), loc.getY(), loc.getZ());
+                }
+            }
+        }
+    }
+
+    private void add(UUID world, UUID uid, double x, double y, double z)
+    {
+        cells.computeIfAbsent(world, k -> new HashMap<>())
+                .computeIfAbsent(getCellKey(Location.locToBlock(x) >> CELL_SHIFT, Location.locToBlock(z) >> CELL_SHIFT), k -> new ArrayList<>())
+                .add(new Point(uid, x, y, z));
+    }
+
+    /**
+     * finds the first point on the movement from start to end where an entity or target is closer than the radius
+     * @param world world of the projectile
+     * @param radius radius of the proximity fuse
+     * @param ignored this entity does not trigger the fuse (e.g. the shooter), can be null
+     * @return fraction of the movement where the fuse is triggered (0 is the start, 1 the end) or -1 if it is not triggered
+     */
+    public double findFirstContact(UUID world, double startX, double startY, double startZ, double endX, double endY, double endZ, double radius, UUID ignored)
+    {
+        Map<Long, List<Point>> worldCells = cells.get(world);
+        if (worldCells == null)
+            return -1.0;
+
+        double dx = endX - startX;
+        double dy = endY - startY;
+        double dz = endZ - startZ;
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+
+        int minCellX = Location.locToBlock(Math.min(startX, endX) - radius) >> CELL_SHIFT;
+        int maxCellX = Location.locToBlock(Math.max(startX, endX) + radius) >> CELL_SHIFT;
+        int minCellZ = Location.locToBlock(Math.min(startZ, endZ) - radius) >> CELL_SHIFT;
+        int maxCellZ = Location.locToBlock(Math.max(startZ, endZ) + radius) >> CELL_SHIFT;
+
+        double first = -1.0;
+        for (int cx = minCellX; cx <= maxCellX; cx++)
+        {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++)
+            {
+                List<Point> cell = worldCells.get(getCellKey(cx, cz));
+                if (cell == null)
+                    continue;
+                for (Point point : cell)
+                {
+                    if (point.uid.equals(ignored))
+                        continue;
+                    //closest point of the movement to this point
+                    double t = 0.0;
+                    if (lengthSquared > 1.0E-12)
+                        t = Math.max(0.0, Math.min(1.0, ((point.x - startX) * dx + (point.y - startY) * dy + (point.z - startZ) * dz) / lengthSquared));
+                    double px = startX + t * dx - point.x;
+                    double py = startY + t * dy - point.y;
+                    double pz = startZ + t * dz - point.z;
+                    double distanceSquared = px * px + py * py + pz * pz;
+                    if (distanceSquared > radius * radius)
+                        continue;
+                    //go back to the point where the movement enters the radius
+                    if (lengthSquared > 1.0E-12)
+                        t = Math.max(0.0, t - Math.sqrt((radius * radius - distanceSquared) / lengthSquared));
+                    if (first < 0.0 || t < first)
+                        first = t;
+                }
+            }
+        }
+        return first;
+    }
+
+    private static long getCellKey(int cellX, int cellZ)
+    {
+        return ((long) cellZ << 32) | (cellX & 0xFFFFFFFFL);
+    }
+}
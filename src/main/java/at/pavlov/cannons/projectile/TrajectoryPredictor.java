@@ -0,0 +1,175 @@
+package at.pavlov.cannons.projectile;
+
+import at.pavlov.cannons.Cannons;
+import at.pavlov.cannons.container.MovingObject;
+import at.pavlov.cannons.utils.BlockSweep;
+import at.pavlov.cannons.utils.ChunkSnapshotLookup;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * calculates the path of a projectile when it is fired. The chunks along the path are copied as snapshots on the thread
+ * owning them, the blocks along the path are checked on an async thread. The path ends at the first solid block,
+ * at a liquid (the projectile slows down in water) or at a chunk which is not loaded.
+ * All projectiles fired by a thread in the same tick share the snapshots, so the pellets of one volley copy a chunk once.
+ */
+public class TrajectoryPredictor
+{
+    //the path is calculated for at most 60s
+    private static final int MAX_TICKS = 1200;
+
+    //snapshots are shared for one tick (ms)
+    private static final long SHARED_LOOKUP_TIME = 50;
+
+    private final Cannons plugin;
+    //last snapshots taken by each thread, region threads on Folia have their own
+    private final ConcurrentHashMap<Thread, SharedLookup> sharedLookups = new ConcurrentHashMap<>();
+
+    private static class SharedLookup
+    {
+        private final ChunkSnapshotLookup lookup;
+        //time of the first snapshot, changes after this time invalidate the path
+        private final long snapshotTime;
+
+        private SharedLookup(ChunkSnapshotLookup lookup, long snapshotTime)
+        {
+            this.lookup = lookup;
+            this.snapshotTime = snapshotTime;
+        }
+    }
+
+    public TrajectoryPredictor(Cannons plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * calculates the trajectory of the projectile and sets it when it is finished
+     * @param cannonball the projectile which was just fired
+     */
+    public void precompute(FlyingProjectile cannonball)
+    {
+        MovingObject predictor = cannonball.getPredictor();
+        World world = predictor.getWorldBukkit();
+        if (world == null)
+            return;
+
+        SharedLookup shared = getSharedLookup(world);
+        ChunkSnapshotLookup lookup = shared.lookup;
+        long snapshotTime = shared.snapshotTime;
+        double[] path = simulatePath(predictor, world, lookup);
+        if (path.length < 6)
+            return;
+
+        plugin.getRegionTaskScheduler().runAsync(() -> cannonball.setTrajectory(sweepPath(lookup, path, world, snapshotTime)));
+    }
+
+    /**
+     * returns the snapshots taken by this thread in the current tick or new snapshots if there are none
+     */
+    private SharedLookup getSharedLookup(World world)
+    {
+        long now = System.currentTimeMillis();
+        SharedLookup shared = sharedLookups.get(Thread.currentThread());
+        if (shared == null || now - shared.snapshotTime >= SHARED_LOOKUP_TIME || !shared.lookup.getWorld().equals(world.getUID()))
+        {
+            shared = new SharedLookup(new ChunkSnapshotLookup(world), now);
+            sharedLookups.put(Thread.currentThread(), shared);
+        }
+        return shared;
+    }
+
+    /**
+     * calculates the points of the path in the air and takes the snapshots of the chunks it crosses
+     * @return x, y, z of every tick
+     */
+    private double[] simulatePath(MovingObject predictor, World world, ChunkSnapshotLookup lookup)
+    {
+        double[] path = new double[3 * (MAX_TICKS + 1)];
+        double x = predictor.getX();
+        double y = predictor.getY();
+        double z = predictor.getZ();
+        double velX = predictor.getVelX();
+        double velY = predictor.getVelY();
+        double velZ = predictor.getVelZ();
+        double drag = predictor.getDrag(false);
+        double gravity = predictor.getGravity();
+        path[0] = x;
+        path[1] = y;
+        path[2] = z;
+
+        int ticks = 0;
+        while (ticks < MAX_TICKS && y >= world.getMinHeight())
+        {
+            double nextX = x + velX;
+            double nextZ = z + velZ;
+            if (!addSnapshots(world, lookup, x, z, nextX, nextZ))
+                break;
+            x = nextX;
+            y += velY;
+            z = nextZ;
+            velX *= drag;
+            velY = velY * drag - gravity;
+            velZ *= drag;
+
+            ticks++;
+            path[3 * ticks] = x;
+            path[3 * ticks + 1] = y;
+            path[3 * ticks + 2] = z;
+        }
+        return Arrays.copyOf(path, 3 * (ticks + 1));
+    }
+
+    /**
+     * adds the snapshots of all chunks touched by the movement
+     * @return false if a chunk is not loaded or owned by a different region
+     */
+    private boolean addSnapshots(World world, ChunkSnapshotLookup lookup, double startX, double startZ, double endX, double endZ)
+    {
+        int startChunkX = Location.locToBlock(startX) >> 4;
+        int startChunkZ = Location.locToBlock(startZ) >> 4;
+        int endChunkX = Location.locToBlock(endX) >> 4;
+        int endChunkZ = Location.locToBlock(endZ) >> 4;
+        for (int cx = Math.min(startChunkX, endChunkX); cx <= Math.max(startChunkX, endChunkX); cx++)
+        {
+            for (int cz = Math.min(startChunkZ, endChunkZ); cz <= Math.max(startChunkZ, endChunkZ); cz++)
+            {
+                if (lookup.getSnapshot(cx, cz) != null)
+                    continue;
+                if (!world.isChunkLoaded(cx, cz) || !Bukkit.isOwnedByCurrentRegion(world, cx, cz))
+                    return false;
+                lookup.addSnapshot(world.getChunkAt(cx, cz).getChunkSnapshot(false, false, false));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * checks the blocks along the path, this can run on any thread
+     */
+    private static PrecomputedTrajectory sweepPath(ChunkSnapshotLookup lookup, double[] path, World world, long snapshotTime)
+    {
+        int ticks = path.length / 3 - 1;
+        BlockSweep.LiquidTracker liquid = new BlockSweep.LiquidTracker();
+        for (int tick = 1; tick <= ticks; tick++)
+        {
+            int i = 3 * tick;
+            BlockSweep.Hit hit = BlockSweep.sweepLiquids(lookup::getType, liquid,
+                    path[i - 3], path[i - 2], path[i - 1], path[i], path[i + 1], path[i + 2]);
+            //missing chunk, the projectile has to be checked from here on
+            if (hit != null && hit.getType() == null)
+                return new PrecomputedTrajectory(world.getUID(), snapshotTime, tick - 1, -1, null);
+            if (hit != null)
+                return new PrecomputedTrajectory(world.getUID(), snapshotTime, tick, tick, hit, liquid.getSurface(), liquid.isInLiquid());
+            //the path in the air is not valid in a liquid, the projectile is checked from here on
+            if (liquid.getSurface() != null || liquid.isInLiquid())
+                return new PrecomputedTrajectory(world.getUID(), snapshotTime, tick, -1, null, liquid.getSurface(), liquid.isInLiquid());
+        }
+        return new PrecomputedTrajectory(world.getUID(), snapshotTime, ticks, -1, null);
+    }
+}
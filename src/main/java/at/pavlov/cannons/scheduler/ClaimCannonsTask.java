@@ -0,0 +1,196 @@
+package at.pavlov.cannons.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import at.pavlov.cannons.Cannons;
+import at.pavlov.cannons.Enum.MessageEnum;
+import at.pavlov.cannons.cannon.Cannon;
+import at.pavlov.cannons.cannon.CannonDesign;
+import at.pavlov.cannons.cannon.DesignMatcher;
+import at.pavlov.cannons.utils.CannonsUtil;
+import at.pavlov.cannons.utils.ChunkSnapshotLookup;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+
+/**
+ * claims all cannons in a box one chunk at a time. The chunks are scanned on chunk snapshots in async tasks,
+ * only the registration of the found cannons is done on the main thread or the thread of the region owning the chunk.
+ */
+public class ClaimCannonsTask
+{
+    //the cannon design might reach into the neighbouring chunks
+    private static final int CHUNK_MARGIN = 1;
+
+    private final Cannons plugin;
+    private final World world;
+    private final UUID owner;
+    private final Location center;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final ChunkSnapshotLookup lookup;
+
+    private final AtomicInteger scannedChunks = new AtomicInteger();
+    //a cannon reaching into several chunks is found in each of them
+    private final Set<UUID> claimedCannons = ConcurrentHashMap.newKeySet();
+    private int totalChunks;
+    private int lastReportedProgress;
+
+    //blocks of cannons which were already found, so they are not checked again
+    private final Set<Long> foundBlocks = ConcurrentHashMap.newKeySet();
+
+    public ClaimCannonsTask(Cannons plugin, Location center, int halfLength, UUID owner)
+    {
+        this.plugin = plugin;
+        this.world = center.getWorld();
+        this.owner = owner;
+        this.center = center.clone();
+        this.lookup = new ChunkSnapshotLookup(world);
+        this.minX = center.getBlockX() - halfLength;
+        this.maxX = center.getBlockX() + halfLength;
+        this.minY = Math.max(center.getBlockY() - halfLength, world.getMinHeight());
+        this.maxY = Math.min(center.getBlockY() + halfLength, world.getMaxHeight() - 1);
+        this.minZ = center.getBlockZ() - halfLength;
+        this.maxZ = center.getBlockZ() + halfLength;
+    }
+
+    /**
+     * takes the chunk snapshots and starts the scan. Has to be called from the main thread
+     */
+    public void start()
+    {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int cx = (minX >> 4) - CHUNK_MARGIN; cx <= (maxX >> 4) + CHUNK_MARGIN; cx++)
+        {
+            for (int cz = (minZ >> 4) - CHUNK_MARGIN; cz <= (maxZ >> 4) + CHUNK_MARGIN; cz++)
+            {
+                // chunks which were never generated have no cannons. The future completes on the main thread
+                futures.add(world.getChunkAtAsync(cx, cz, false).thenAccept(chunk -> {
+                    if (chunk != null)
+                        lookup.addSnapshot(chunk.getChunkSnapshot(false, false, false));
+                }));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((result, ex) -> {
+            if (ex != null)
+                plugin.logSevere("Error while loading chunks for claiming cannons: " + ex);
+            plugin.getRegionTaskScheduler().runNextTick(center, this::scanChunks);
+        });
+    }
+
+    /**
+     * starts an async scan for every chunk of the box
+     */
+    private void scanChunks()
+    {
+        List<int[]> chunks = new ArrayList<>();
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++)
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++)
+                chunks.add(new int[]{cx, cz});
+
+        totalChunks = chunks.size();
+        for (int[] chunk : chunks)
+        {
+            plugin.getRegionTaskScheduler().runAsync(() -> {
+                List<Location> found = scanChunk(chunk[0], chunk[1]);
+                Location chunkLocation = new Location(world, chunk[0] << 4, minY, chunk[1] << 4);
+                plugin.getRegionTaskScheduler().runNextTick(chunkLocation, () -> registerCannons(found));
+            });
+        }
+    }
+
+    /**
+     * searches all cannons in the part of the box inside this chunk. Runs async
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     * @return one block of every cannon found
+     */
+    private List<Location> scanChunk(int chunkX, int chunkZ)
+    {
+        List<Location> found = new ArrayList<>();
+        if (lookup.getSnapshot(chunkX, chunkZ) == null)
+            return found;
+
+        DesignMatcher matcher = plugin.getDesignStorage().getDesignMatcher();
+        int startX = Math.max(minX, chunkX << 4);
+        int endX = Math.min(maxX, (chunkX << 4) + 15);
+        int startZ = Math.max(minZ, chunkZ << 4);
+        int endZ = Math.min(maxZ, (chunkZ << 4) + 15);
+
+        for (int x = startX; x <= endX; x++)
+        {
+            for (int z = startZ; z <= endZ; z++)
+            {
+                for (int y = minY; y <= maxY; y++)
+                {
+                    Material material = lookup.getType(x, y, z);
+                    if (material == null || !plugin.getDesignStorage().isCannonBlockMaterial(material))
+                        continue;
+                    if (foundBlocks.contains(CannonsUtil.toBlockKey(x, y, z)))
+                        continue;
+
+                    for (DesignMatcher.Candidate candidate : matcher.getCandidates(material))
+                    {
+                        Vector offset = candidate.getOffset(x, y, z);
+                        if (candidate.matches(lookup, offset))
+                        {
+                            CannonDesign design = candidate.getDesign();
+                            for (int b = 0; b < design.getCannonBlockCount(candidate.getCannonDirection()); b++)
+                            {
+                                long key = design.getCannonBlockKey(candidate.getCannonDirection(), b);
+                                foundBlocks.add(CannonsUtil.toBlockKey(CannonsUtil.getBlockKeyX(key) + offset.getBlockX(),
+                                        CannonsUtil.getBlockKeyY(key) + offset.getBlockY(), CannonsUtil.getBlockKeyZ(key) + offset.getBlockZ()));
+                            }
+                            found.add(new Location(world, x, y, z));
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * registers the found cannons. The cannon is checked again, since the world might have changed since the snapshot
+     * @param found one block of every found cannon
+     */
+    private void registerCannons(List<Location> found)
+    {
+        for (Location loc : found)
+        {
+            Cannon cannon = plugin.getCannonManager().getCannon(loc, owner);
+            if (cannon != null && owner.equals(cannon.getOwner()))
+                claimedCannons.add(cannon.getUID());
+        }
+
+        int scanned = scannedChunks.incrementAndGet();
+        Player player = Bukkit.getPlayer(owner);
+        if (scanned >= totalChunks)
+        {
+            plugin.logDebug("claimed " + claimedCannons.size() + " cannons in " + totalChunks + " chunks");
+            plugin.getMyConfig().getUserMessages().sendMessage(MessageEnum.CmdClaimCannonsFinished, player);
+            return;
+        }
+
+        //report the progress in steps of 25%, the chunks might be registered by several region threads
+        int progress = 100 * scanned / totalChunks;
+        synchronized (this)
+        {
+            if (progress / 25 <= lastReportedProgress / 25)
+                return;
+            lastReportedProgress = progress;
+        }
+        plugin.getMyConfig().getUserMessages().sendClaimProgressMessage(player, progress, claimedCannons.size());
+    }
+}
@@ -3,9 +3,8 @@ package at.pavlov.cannons.scheduler;
 
 import at.pavlov.cannons.Cannons;
 import at.pavlov.cannons.cannon.Cannon;
-import org.bukkit.scheduler.BukkitRunnable;
 
-public class CreateCannon extends BukkitRunnable {
+public class CreateCannon implements Runnable {
 
     private final Cannons plugin;
     private Cannon cannon;
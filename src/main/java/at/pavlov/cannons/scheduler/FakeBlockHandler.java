@@ -12,15 +12,17 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class FakeBlockHandler {
     private final Cannons plugin;
 
-    private ArrayList<FakeBlockEntry> list = new ArrayList<FakeBlockEntry>();
+    //fake blocks shown to players and the timer removing them again, written by the region threads on regionized servers
+    private final ConcurrentHashMap<FakeBlockEntry, TimingWheel.Timer> list = new ConcurrentHashMap<FakeBlockEntry, TimingWheel.Timer>();
 
-    private long lastAiming;
-    private long lastImpactPredictor;
+    private volatile long lastAiming;
+    private volatile long lastImpactPredictor;
 
 
     /**
@@ -38,10 +40,9 @@ public class FakeBlockHandler {
     public void setupScheduler()
     {
         //changing angles for aiming mode
-        plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, new Runnable()
+        plugin.getRegionTaskScheduler().runTimer(new Runnable()
         {
             public void run() {
-                removeOldBlocks();
                 removeOldBlockType();
             }
 
@@ -50,34 +51,24 @@ public class FakeBlockHandler {
 
 
     /**
-     * removes old blocks form the players vision
+     * removes an expired block form the players vision
+     * @param entry the expired fake block
      */
-    private void removeOldBlocks()
+    private void removeExpiredBlock(FakeBlockEntry entry)
     {
-        Iterator<FakeBlockEntry> iter = list.iterator();
-        while(iter.hasNext())
-        {
-            FakeBlockEntry next = iter.next();
-            Player player = next.getPlayerBukkit();
+        list.remove(entry);
 
-            //if player is offline remove this one
-            if (player == null) {
-                iter.remove();
-                continue;
-            }
+        //if player is offline there is nothing to send
+        Player player = entry.getPlayerBukkit();
+        if (player == null)
+            return;
 
-            if (next.isExpired())
-            {
-                //send real block to player
-                Location loc = next.getLocation();
-                if (loc != null)
-                {
-                    player.sendBlockChange(loc, loc.getBlock().getBlockData());
-                    // plugin.logDebug("expired fake block: " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ", " + next.getType().toString());
-                }
-                //remove this entry
-                iter.remove();
-            }
+        //send real block to player
+        Location loc = entry.getLocation();
+        if (loc != null)
+        {
+            player.sendBlockChange(loc, loc.getBlock().getBlockData());
+            // plugin.logDebug("expired fake block: " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ", " + entry.getType().toString());
         }
     }
 
@@ -86,23 +77,25 @@ public class FakeBlockHandler {
      */
     private void removeOldBlockType()
     {
-        Iterator<FakeBlockEntry> iter = list.iterator();
+        Iterator<Map.Entry<FakeBlockEntry, TimingWheel.Timer>> iter = list.entrySet().iterator();
         while(iter.hasNext())
         {
-            FakeBlockEntry next = iter.next();
+            Map.Entry<FakeBlockEntry, TimingWheel.Timer> entry = iter.next();
+            FakeBlockEntry next = entry.getKey();
             //if older and if the type matches
             if (next.getStartTime() < (lastAiming - 50) && (next.getType() == FakeBlockType.AIMING)
                     || next.getStartTime() < (lastImpactPredictor - 50) && (next.getType() == FakeBlockType.IMPACT_PREDICTOR))
             {
-                //send real block to player
+                //send real block to player, the block is read by the region owning it
                 Player player = next.getPlayerBukkit();
                 Location loc = next.getLocation();
                 if (player != null && loc != null)
                 {
-                    player.sendBlockChange(loc, loc.getBlock().getBlockData());
+                    plugin.getRegionTaskScheduler().runAt(loc, () -> player.sendBlockChange(loc, loc.getBlock().getBlockData()));
                 }
 
                 //remove this entry
+                entry.getValue().cancel();
                 iter.remove();
                 //plugin.logDebug("remove older fake entry: " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ", " + next.getType().toString() + " stime " + next.getStartTime());
             }
@@ -190,27 +183,14 @@ public class FakeBlockHandler {
         //only show block in air
         if(loc.getBlock().isEmpty())
         {
-            FakeBlockEntry fakeBlockEntry = new FakeBlockEntry(loc, player, type, (long) (duration*20.0));
-
-
-            boolean found = false;
-            for (FakeBlockEntry block : list)
-            {
-                if (block.equals(fakeBlockEntry))
-                {
-                    //renew entry
-                    //plugin.logDebug("renew block at: " + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ() + ", " + type.toString());
-                    block.setStartTime(System.currentTimeMillis());
-                    found = true;
-                    //there is only one block here
-                    break;
-                }
-            }
-            if (!found)
-            {
-                //player.sendBlockChange(loc, blockData);
-                list.add(fakeBlockEntry);
-            }
+            final FakeBlockEntry fakeBlockEntry = new FakeBlockEntry(loc, player, type, (long) (duration*20.0));
+
+            //renew entry, the old one is replaced by the new entry with a new start time
+            TimingWheel.Timer oldTimer = list.remove(fakeBlockEntry);
+            if (oldTimer != null)
+                oldTimer.cancel();
+            //the block is removed by the region owning it
+            list.put(fakeBlockEntry, plugin.getTimingWheel().schedule(() -> removeExpiredBlock(fakeBlockEntry), fakeBlockEntry.getLocation(), fakeBlockEntry.getDuration()));
 
 
             if (type == FakeBlockType.IMPACT_PREDICTOR)
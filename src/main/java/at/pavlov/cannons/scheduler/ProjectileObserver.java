@@ -7,25 +7,38 @@ import at.pavlov.cannons.container.SoundHolder;
 import at.pavlov.cannons.projectile.FlyingProjectile;
 import at.pavlov.cannons.projectile.Projectile;
 import at.pavlov.cannons.projectile.ProjectileProperties;
+import at.pavlov.cannons.projectile.ProjectileTable;
+import at.pavlov.cannons.projectile.ProximityGrid;
+import at.pavlov.cannons.utils.BlockSweep;
 import at.pavlov.cannons.utils.CannonsUtil;
 import io.papermc.paper.entity.TeleportFlag;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.potion.PotionEffectType;
+import org.bukkit.util.RayTraceResult;
 import org.bukkit.util.Vector;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Random;
-import java.util.UUID;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 public class ProjectileObserver {
+    //a virtual projectile hits an entity if its path is closer than this
+    private static final double VIRTUAL_HIT_RADIUS = 0.3;
+    //entities are stored in the grid by their center, the ray trace is only done for entities closer than this
+    private static final double VIRTUAL_SEARCH_RADIUS = 8.0;
+    //projectiles are removed after 1h
+    private static final long MAX_AGE = 3600000;
+
     private final Cannons plugin;
+    //one table for each thread, on regionized servers the shards are updated in parallel
+    private final ThreadLocal<ProjectileTable> projectileTables = ThreadLocal.withInitial(ProjectileTable::new);
+    private final ThreadLocal<ProximityGrid> proximityGrids = ThreadLocal.withInitial(ProximityGrid::new);
 
 
     /**
@@ -42,47 +55,104 @@ public class ProjectileObserver {
      */
     public void setupScheduler()
     {
-        //changing angles for aiming mode
-        plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, new Runnable()
+        //update all flying projectiles, on regionized servers by the region of the projectile
+        plugin.getRegionTaskScheduler().runTimer(new Runnable()
         {
             public void run()
             {
-                //get projectiles
-                Iterator<Map.Entry<UUID,FlyingProjectile>> iter = plugin.getProjectileManager().getFlyingProjectiles().entrySet().iterator();
-                while(iter.hasNext())
-                {
-                    FlyingProjectile cannonball = iter.next().getValue();
-                    org.bukkit.entity.Projectile projectile_entity = cannonball.getProjectileEntity();
-                    //remove an not valid projectile
-                    if (!cannonball.isValid(projectile_entity))
-                    {
-                        //teleport the observer back to its start position
-                        CannonsUtil.teleportBack(cannonball);
-                        if (projectile_entity != null)
-                        {
-                            Location l = projectile_entity.getLocation();
-                            projectile_entity.remove();
-                            plugin.logDebug("removed Projectile at " + l.getBlockX() + "," + l.getBlockY() + "," + l.getBlockZ() + " because it was not valid.");
-                        }
-                        else
-                            plugin.logDebug("removed Projectile at because the entity was missing");
-                        //remove entry in hashmap
-                        iter.remove();
-                        continue;
-                    }
+                plugin.getRegionTaskScheduler().runShardedBatch(plugin.getProjectileManager().getFlyingProjectiles().values(),
+                        FlyingProjectile::getExpectedLocation, ProjectileObserver.this::updateProjectiles);
+            }
+        }, 1L, 1L);
+    }
 
-                    //update the cannonball
-                    checkWaterImpact(cannonball, projectile_entity);
-                    updateTeleporter(cannonball, projectile_entity);
-                    updateSmokeTrail(cannonball, projectile_entity);
-                    if (updateProjectileLocation(cannonball, projectile_entity)) {
-                        iter.remove();
-                        continue;
-                    }
-                }
+    /**
+     * updates a batch of flying projectiles. The state of all projectiles is copied into a projectile table, which
+     * finds the projectiles needing a check with the world in one loop. Only these projectiles are checked, the
+     * predicted movement of all projectiles is calculated together afterwards.
+     * The entities and targets near proximity fused and virtual projectiles are collected once for the whole batch
+     * @param cannonballs the projectiles to update
+     */
+    private void updateProjectiles(List<FlyingProjectile> cannonballs)
+    {
+        ProjectileTable table = projectileTables.get();
+        long now = System.currentTimeMillis();
+        for (FlyingProjectile cannonball : cannonballs)
+        {
+            //virtual projectiles are always updated, they have no entity doing it. Proximity fuses need the predicted path
+            boolean predicted = cannonball.isVirtual() || plugin.getMyConfig().isKeepAliveEnabled() || cannonball.getProjectile().hasProximityFuse();
+            table.add(cannonball, cannonball.getProjectileEntity(), predicted, now >= cannonball.getSpawnTime() + MAX_AGE);
+        }
+        table.check(plugin.getMyConfig().getKeepAliveTeleportDistance());
+
+        ProximityGrid grid = proximityGrids.get();
+        grid.clear();
+        for (FlyingProjectile cannonball : cannonballs)
+        {
+            if (cannonball.isProximityFuseArmed())
+                grid.addArea(cannonball, cannonball.getProjectile().getProximityFuseRadius());
+            if (cannonball.isVirtual())
+                grid.addArea(cannonball, VIRTUAL_SEARCH_RADIUS);
+        }
+        if (!grid.isEmpty())
+            grid.build();
+
+        for (int i = 0; i < table.size(); i++)
+        {
+            if (!updateProjectile(table, i, grid))
+                table.remove(i);
+        }
+        table.step();
+        table.store();
+        grid.clear();
+    }
 
+    /**
+     * updates one flying projectile and removes it if it is not valid or has hit something
+     * @param table state of the projectiles in this update
+     * @param i row of the projectile in the table
+     * @param grid entities and targets near proximity fused projectiles
+     * @return false if the projectile was removed
+     */
+    private boolean updateProjectile(ProjectileTable table, int i, ProximityGrid grid)
+    {
+        FlyingProjectile cannonball = table.getProjectile(i);
+        org.bukkit.entity.Projectile projectile_entity = table.getEntity(i);
+        //remove an not valid projectile
+        if (table.isInvalid(i))
+        {
+            //teleport the observer back to its start position
+            CannonsUtil.teleportBack(cannonball);
+            if (projectile_entity != null)
+            {
+                Location l = projectile_entity.getLocation();
+                projectile_entity.remove();
+                plugin.logDebug("removed Projectile at " + l.getBlockX() + "," + l.getBlockY() + "," + l.getBlockZ() + " because it was not valid.");
             }
-        }, 1L, 1L);
+            else if (cannonball.isVirtual())
+                plugin.logDebug("removed virtual Projectile because it was not valid.");
+            else
+                plugin.logDebug("removed Projectile at because the entity was missing");
+            //remove entry in hashmap
+            plugin.getProjectileManager().getFlyingProjectiles().remove(cannonball.getUID(), cannonball);
+            return false;
+        }
+
+        //update the cannonball, a projectile on the predicted path finds the water surface when its blocks are checked
+        if (table.hasEntityEnteredBlock(i))
+            checkWaterImpact(cannonball, projectile_entity);
+        updateTeleporter(cannonball, projectile_entity);
+        updateSmokeTrail(table, i);
+        if (cannonball.isVirtual())
+            renderVirtualProjectile(cannonball);
+        if (!table.isPredicted(i))
+            return true;
+        if (updateProjectileLocation(table, i, grid))
+        {
+            plugin.getProjectileManager().getFlyingProjectiles().remove(cannonball.getUID(), cannonball);
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -96,8 +166,8 @@ public class ProjectileObserver {
         if (cannonball.updateWaterSurfaceCheck(projectile_entity))
         {
             //go up until there is air and place the same liquid
-            Location startLoc = projectile_entity.getLocation().clone();
-            Vector vel = projectile_entity.getVelocity().clone();
+            Location startLoc = cannonball.getActualLocation(projectile_entity).clone();
+            Vector vel = cannonball.getActualVelocity(projectile_entity).clone();
             ItemHolder liquid = new ItemHolder(startLoc.getBlock().getType());
 
             for (int i = 0; i<5; i++)
@@ -113,6 +183,20 @@ public class ProjectileObserver {
         }
     }
 
+    /**
+     * makes a splash where the projectile has entered the water during the last block check
+     * @param cannonball the projectile to check
+     */
+    private void checkWaterSurface(FlyingProjectile cannonball)
+    {
+        BlockSweep.Hit surface = cannonball.getWaterSurface();
+        if (surface == null)
+            return;
+        //the point of the surface hit is in the last block before the liquid
+        Location loc = new Location(cannonball.getWorld(), Location.locToBlock(surface.getX()), Location.locToBlock(surface.getY()), Location.locToBlock(surface.getZ()));
+        sendSplashToPlayers(loc, new ItemHolder(surface.getType()), cannonball.getProjectile().getSoundImpactWater());
+    }
+
     /**
      * creates a sphere of fake blocks on the impact for all player in the vicinity
      * @param loc - location of the impact
@@ -144,7 +228,7 @@ public class ProjectileObserver {
     private void updateTeleporter(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity)
     {
         //do nothing if the teleport was already performed
-        if (cannonball.isTeleported())
+        if (cannonball.isTeleported() || projectile_entity == null)
             return;
 
         //if projectile has HUMAN_CANNONBALL or OBSERVER - update player position
@@ -185,16 +269,18 @@ public class ProjectileObserver {
     }
 
     /**
-     * calculates the location where the projectile should be an teleports the projectile to this location
-     * @param cannonball projectile to update
+     * teleports the projectile to the location where it should be and checks if it has hit a block.
+     * The next expected location is calculated afterwards for all projectiles together
+     * @param table state of the projectiles in this update
+     * @param i row of the projectile in the table
+     * @param grid entities and targets near proximity fused projectiles
      * @return true if the projectile must be removed
      */
-    private boolean updateProjectileLocation(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity)
+    private boolean updateProjectileLocation(ProjectileTable table, int i, ProximityGrid grid)
     {
-        if (!plugin.getMyConfig().isKeepAliveEnabled())
-            return false;
-
-        if (cannonball.distanceToProjectile(projectile_entity) > plugin.getMyConfig().getKeepAliveTeleportDistance())
+        FlyingProjectile cannonball = table.getProjectile(i);
+        org.bukkit.entity.Projectile projectile_entity = table.getEntity(i);
+        if (table.isTeleportNeeded(i))
         {
             Location toLoc = cannonball.getExpectedLocation();
             plugin.logDebug("teleported projectile to: " +  toLoc.getBlockX() + "," + toLoc.getBlockY() + "," + toLoc.getBlockZ());
@@ -202,68 +288,119 @@ public class ProjectileObserver {
         }
 
 
-        //see if we hit something
-        Block block = cannonball.getExpectedLocation().getBlock();
-        if (!block.isEmpty() && !block.isLiquid())
+        //virtual projectiles have no entity which would collide with other entities
+        RayTraceResult entityHit = null;
+        if (cannonball.isVirtual() && cannonball.isNearEntity(grid, VIRTUAL_SEARCH_RADIUS))
+            entityHit = cannonball.findEntityHit(VIRTUAL_HIT_RADIUS);
+        Vector proximityHit = cannonball.findProximityHit(grid);
+
+        //see if we have hit something since the last tick, there is nothing new to find if the projectile is in the same block
+        BlockSweep.Hit hit = null;
+        if (table.hasEnteredBlock(i))
+            hit = cannonball.sweepBlocks();
+        else
+            cannonball.skipBlockCheck();
+        checkWaterSurface(cannonball);
+        if (entityHit != null && (hit == null || isBefore(cannonball, entityHit.getHitPosition(), hit)))
+        {
+            Vector pos = entityHit.getHitPosition();
+            cannonball.moveToImpact(pos.getX(), pos.getY(), pos.getZ());
+            plugin.getExplosion().directHit(cannonball, null, entityHit.getHitEntity());
+            return true;
+        }
+        //the proximity fuse is triggered before the projectile reaches the entity
+        if (proximityHit != null && (hit == null || isBefore(cannonball, proximityHit, hit)))
         {
-            cannonball.revertUpdate();
+            plugin.logDebug("proximity fuse triggered at: " + proximityHit.getBlockX() + "," + proximityHit.getBlockY() + "," + proximityHit.getBlockZ());
+            cannonball.moveToImpact(proximityHit.getX(), proximityHit.getY(), proximityHit.getZ());
             cannonball.teleportToPrediction(projectile_entity);
             plugin.getExplosion().detonate(cannonball, projectile_entity, null);
-            projectile_entity.remove();
+            if (projectile_entity != null)
+                projectile_entity.remove();
+            return true;
+        }
+        if (hit != null)
+        {
+            cannonball.moveToImpact(hit.getX(), hit.getY(), hit.getZ());
+            cannonball.teleportToPrediction(projectile_entity);
+            plugin.getExplosion().detonate(cannonball, projectile_entity, hit.getFace(), hit.getBlockLocation(cannonball.getWorld()));
+            if (projectile_entity != null)
+                projectile_entity.remove();
             return true;
         }
-        //todo proximity fuse
-        cannonball.update();
         return false;
     }
 
 
+    /**
+     * returns true if the position was reached before the block was hit. Both are on the movement of this tick, so
+     * the one further away from the end of the movement is the first one
+     */
+    private boolean isBefore(FlyingProjectile cannonball, Vector position, BlockSweep.Hit hit)
+    {
+        Vector end = cannonball.getExpectedLocation().toVector();
+        return position.distanceSquared(end) > end.distanceSquared(new Vector(hit.getX(), hit.getY(), hit.getZ()));
+    }
+
+    /**
+     * shows a virtual projectile with particles, it has no entity the players could see
+     * @param cannonball the virtual projectile
+     */
+    private void renderVirtualProjectile(FlyingProjectile cannonball)
+    {
+        World world = cannonball.getWorld();
+        if (world == null)
+            return;
+        world.spawnParticle(plugin.getMyConfig().getVirtualProjectilesParticle(), cannonball.getExpectedLocation(),
+                plugin.getMyConfig().getVirtualProjectilesParticleCount(), 0, 0, 0, 0, null, true);
+    }
+
     /**
      * spawn smoke clouds behind the projectile to improve the visibility
-     * @param cannonball the cannonball entity entry of cannons
-     * @param projectile_entity the entity of the projectile
+     * @param table state of the projectiles in this update
+     * @param i row of the projectile in the table
      */
-    private void updateSmokeTrail(FlyingProjectile cannonball, org.bukkit.entity.Projectile projectile_entity)
+    private void updateSmokeTrail(ProjectileTable table, int i)
     {
-        Random r = new Random();
+        FlyingProjectile cannonball = table.getProjectile(i);
         Projectile proj = cannonball.getProjectile();
-        int maxDist = (int) plugin.getMyConfig().getImitatedBlockMaximumDistance();
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+
+        // CCNet - play travel sound
+        if (r.nextDouble() < 0.01) {
+            CannonsUtil.playSound(cannonball.getExpectedLocation(), proj.getTravelSound());
+        }
+
         double smokeDist = proj.getSmokeTrailDistance()*(0.5 + r.nextDouble());
+        Location lastLoc = cannonball.getLastSmokeTrailLocation();
+        if (!proj.isSmokeTrailEnabled() || table.distanceSquared(i, lastLoc.getX(), lastLoc.getY(), lastLoc.getZ()) <= smokeDist * smokeDist)
+            return;
+
+        //create a new smoke trail cloud
+        int maxDist = (int) plugin.getMyConfig().getImitatedBlockMaximumDistance();
         double smokeDuration = proj.getSmokeTrailDuration()*(0.5 + r.nextGaussian());
         Location newLoc = cannonball.getExpectedLocation();
+        cannonball.setLastSmokeTrailLocation(newLoc);
+        plugin.logDebug("smoke trail at: " +  newLoc.getBlockX() + "," + newLoc.getBlockY() + "," + newLoc.getBlockZ());
 
-        // CCNet - play travel sound
-        Random rand = new Random();
-        if (rand.nextDouble() < 0.01) {
-            CannonsUtil.playSound(newLoc, proj.getTravelSound());
+        if (proj.isSmokeTrailParticleEnabled()) {
+            cannonball.getWorld().spawnParticle(proj.getSmokeTrailParticleType(), newLoc, proj.getSmokeTrailParticleCount(), proj.getSmokeTrailParticleOffsetX(), proj.getSmokeTrailParticleOffsetY(), proj.getSmokeTrailParticleOffsetZ(), proj.getSmokeTrailParticleSpeed(), null, true);
         }
+        else {
+            // added null if the world was deleted
+            if (newLoc.getWorld() != null) {
+                var smokeBlocks = plugin.getFakeBlockHandler().imitateSphere(newLoc, 0, proj.getSmokeTrailMaterial());
 
-        if (proj.isSmokeTrailEnabled() && cannonball.getExpectedLocation().distanceSquared(cannonball.getLastSmokeTrailLocation()) > smokeDist * smokeDist)
-        {
-            //create a new smoke trail cloud
-            cannonball.setLastSmokeTrailLocation(newLoc);
-            plugin.logDebug("smoke trail at: " +  newLoc.getBlockX() + "," + newLoc.getBlockY() + "," + newLoc.getBlockZ());
+                for (Player p : newLoc.getWorld().getPlayers()) {
+                    Location pl = p.getLocation();
+                    double distance = pl.distanceSquared(newLoc);
 
-            if (proj.isSmokeTrailParticleEnabled()) {
-                cannonball.getWorld().spawnParticle(proj.getSmokeTrailParticleType(), newLoc, proj.getSmokeTrailParticleCount(), proj.getSmokeTrailParticleOffsetX(), proj.getSmokeTrailParticleOffsetY(), proj.getSmokeTrailParticleOffsetZ(), proj.getSmokeTrailParticleSpeed(), null, true);
-            }
-            else {
-                // added null if the world was deleted
-                if (newLoc.getWorld() != null) {
-                    var smokeBlocks = plugin.getFakeBlockHandler().imitateSphere(newLoc, 0, proj.getSmokeTrailMaterial());
-
-                    for (Player p : newLoc.getWorld().getPlayers()) {
-                        Location pl = p.getLocation();
-                        double distance = pl.distanceSquared(newLoc);
-
-                        if (distance <= maxDist * maxDist) {
-                            plugin.getFakeBlockHandler().sendBlockChanges(p, smokeBlocks, FakeBlockType.SMOKE_TRAIL, smokeDuration);
-                        }
+                    if (distance <= maxDist * maxDist) {
+                        plugin.getFakeBlockHandler().sendBlockChanges(p, smokeBlocks, FakeBlockType.SMOKE_TRAIL, smokeDuration);
                     }
                 }
             }
         }
-
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package at.pavlov.cannons.scheduler;
+
+import at.pavlov.cannons.Cannons;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+
+/**
+ * runs the repeating tasks of the plugin. On a normal server everything runs on the main thread. On regionized
+ * servers (Folia) or if regionized scheduling is enabled in the config, the work for cannons and projectiles is split
+ * into shards by location and each shard is executed by the scheduler of the region owning this location.
+ */
+public class RegionTaskScheduler
+{
+    //a shard covers 16x16 chunks, which is the default size of a region section
+    private static final int SHARD_SHIFT = 8;
+    private static final boolean FOLIA = isFolia();
+
+    private final Cannons plugin;
+
+    private static class Shard<T>
+    {
+        private final Location location;
+        private final List<T> items = new ArrayList<>();
+
+        private Shard(Location location)
+        {
+            this.location = location;
+        }
+    }
+
+    public RegionTaskScheduler(Cannons plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    private static boolean isFolia()
+    {
+        try
+        {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * returns true if the work is split by region
+     * @return true if the regionized schedulers are used
+     */
+    public boolean isRegionized()
+    {
+        return FOLIA || plugin.getMyConfig().isRegionizedScheduling();
+    }
+
+    /**
+     * starts a repeating task which is not bound to a location
+     * @param task task to run
+     * @param delay delay before the first run in ticks
+     * @param period period in ticks
+     */
+    public void runTimer(Runnable task, long delay, long period)
+    {
+        if (isRegionized())
+            Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, scheduledTask -> task.run(), delay, period);
+        else
+            plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, task, delay, period);
+    }
+
+    /**
+     * runs a task for this location. If the scheduling is regionized the task is executed by the region owning the
+     * location, otherwise it is executed right away
+     * @param location location the task is working on
+     * @param task task to run
+     */
+    public void runAt(Location location, Runnable task)
+    {
+        if (isRegionized() && location.getWorld() != null)
+            Bukkit.getRegionScheduler().execute(plugin, location, task);
+        else
+            task.run();
+    }
+
+    /**
+     * runs a task in the next tick on the main thread or, if the scheduling is regionized, by the region owning the
+     * location. Can be called from any thread
+     * @param location location the task is working on, without a world the task runs on the global region
+     * @param task task to run
+     */
+    public void runNextTick(Location location, Runnable task)
+    {
+        runLater(location, task, 1L);
+    }
+
+    /**
+     * runs a task after a delay on the main thread or, if the scheduling is regionized, by the region owning the
+     * location. Can be called from any thread
+     * @param location location the task is working on, without a world the task runs on the global region
+     * @param task task to run
+     * @param delay delay in ticks, at least one tick
+     */
+    public void runLater(Location location, Runnable task, long delay)
+    {
+        delay = Math.max(delay, 1L);
+        if (!isRegionized())
+            plugin.getServer().getScheduler().runTaskLater(plugin, task, delay);
+        else if (location == null || location.getWorld() == null)
+            Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduledTask -> task.run(), delay);
+        else
+            Bukkit.getRegionScheduler().runDelayed(plugin, location, scheduledTask -> task.run(), delay);
+    }
+
+    /**
+     * runs a task once on a thread which is not the main thread or a region thread
+     * @param task task to run
+     */
+    public void runAsync(Runnable task)
+    {
+        if (isRegionized())
+            Bukkit.getAsyncScheduler().runNow(plugin, scheduledTask -> task.run());
+        else
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+    /**
+     * runs the work for all items. If the scheduling is regionized the items are grouped by their location and
+     * every group is executed on the thread of the region owning it. Otherwise all items are processed right away
+     * @param items items to process
+     * @param locator returns the location of an item, can return null if the item has no location
+     * @param work work for one item
+     * @param <T> type of the items
+     */
+    public <T> void runSharded(Iterable<T> items, Function<T, Location> locator, Consumer<T> work)
+    {
+        runShardedBatch(items, locator, batch -> {
+            for (T item : batch)
+                work.accept(item);
+        });
+    }
+
+    /**
+     * same as runSharded, but the work gets all items of a shard at once. If the scheduling is not regionized
+     * all items are passed in one batch
+     * @param items items to process
+     * @param locator returns the location of an item, can return null if the item has no location
+     * @param work work for a batch of items
+     * @param <T> type of the items
+     */
+    public <T> void runShardedBatch(Iterable<T> items, Function<T, Location> locator, Consumer<List<T>> work)
+    {
+        if (!isRegionized())
+        {
+            List<T> all = new ArrayList<>();
+            for (T item : items)
+                all.add(item);
+            work.accept(all);
+            return;
+        }
+
+        //world -> shard key -> items
+        Map<UUID, Map<Long, Shard<T>>> shards = new HashMap<>();
+        List<T> unlocated = new ArrayList<>();
+        for (T item : items)
+        {
+            Location loc = locator.apply(item);
+            if (loc == null || loc.getWorld() == null)
+            {
+                unlocated.add(item);
+                continue;
+            }
+            long key = getShardKey(loc.getBlockX() >> SHARD_SHIFT, loc.getBlockZ() >> SHARD_SHIFT);
+            //the shard is scheduled at the location of its first item
+            shards.computeIfAbsent(loc.getWorld().getUID(), k -> new HashMap<>())
+                    .computeIfAbsent(key, k -> new Shard<T>(loc)).items.add(item);
+        }
+        if (!unlocated.isEmpty())
+            work.accept(unlocated);
+
+        for (Map<Long, Shard<T>> worldShards : shards.values())
+        {
+            for (Shard<T> shard : worldShards.values())
+                Bukkit.getRegionScheduler().execute(plugin, shard.location, () -> work.accept(shard.items));
+        }
+    }
+
+    /**
+     * cancels all tasks of the plugin. Tasks of the region schedulers are cancelled by the server when the plugin
+     * is disabled
+     */
+    public void cancelTasks()
+    {
+        //there is no main thread scheduler on Folia
+        if (!FOLIA)
+            plugin.getServer().getScheduler().cancelTasks(plugin);
+        if (isRegionized())
+        {
+            Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+            Bukkit.getAsyncScheduler().cancelTasks(plugin);
+        }
+    }
+
+    private static long getShardKey(int shardX, int shardZ)
+    {
+        return ((long) shardZ << 32) | (shardX & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,135 @@
+package at.pavlov.cannons.scheduler;
+
+import at.pavlov.cannons.Cannons;
+import at.pavlov.cannons.cannon.Cannon;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * decides which sentry cannons are updated in a tick. Sentries which are aiming, firing or loading are updated every
+ * tick. Idle sentries are spread over several ticks by a phase derived from their UID. The updates of a tick have a
+ * time budget, sentries which were not updated in time are updated first in the next tick.
+ */
+public class SentryScheduler
+{
+    //sentries with an active target, nearby players and the rest
+    private static final int PRIORITY_ACTIVE = 0;
+    private static final int PRIORITY_PLAYER = 1;
+    private static final int PRIORITY_IDLE = 2;
+
+    private final Cannons plugin;
+    //sentries which were skipped because the budget was used up
+    private final Set<UUID> deferred = ConcurrentHashMap.newKeySet();
+    private long tick;
+
+    public SentryScheduler(Cannons plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * returns the sentries which are updated in this tick and advances to the next tick
+     * @param sentries all sentry cannons
+     * @return sentries to update, the deferred ones first
+     */
+    public List<Cannon> selectCannons(Collection<Cannon> sentries)
+    {
+        int phases = plugin.getMyConfig().getSentryUpdatePhases();
+        int phase = (int) (tick++ % phases);
+
+        LinkedHashSet<Cannon> selected = new LinkedHashSet<>();
+        List<Cannon> other = new ArrayList<>();
+        for (Cannon cannon : sentries)
+        {
+            if (deferred.remove(cannon.getUID()))
+                selected.add(cannon);
+            else if (isActive(cannon) || Math.floorMod(cannon.getUID().hashCode(), phases) == phase)
+                other.add(cannon);
+        }
+        selected.addAll(other);
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * sorts the sentries of a batch, active sentries first, then sentries with a player nearby
+     * @param cannons sentries of one batch
+     */
+    public void prioritize(List<Cannon> cannons)
+    {
+        double range = plugin.getMyConfig().getSentryPriorityRange();
+        //the players of a world are only looked up once
+        Map<UUID, List<Location>> players = new HashMap<>();
+        Map<Cannon, Integer> priorities = new HashMap<>();
+        for (Cannon cannon : cannons)
+        {
+            int priority = PRIORITY_IDLE;
+            if (isActive(cannon))
+                priority = PRIORITY_ACTIVE;
+            else if (isPlayerNearby(cannon, players, range))
+                priority = PRIORITY_PLAYER;
+            priorities.put(cannon, priority);
+        }
+        //stable sort, the deferred sentries stay in front within their priority
+        cannons.sort(Comparator.comparingInt(priorities::get));
+    }
+
+    /**
+     * the sentries were not updated in this tick and are updated first in the next tick
+     * @param cannons skipped sentries
+     */
+    public void defer(Collection<Cannon> cannons)
+    {
+        for (Cannon cannon : cannons)
+            deferred.add(cannon.getUID());
+    }
+
+    /**
+     * returns the time the sentry updates of one batch may use
+     * @return budget in nanoseconds
+     */
+    public long getTickBudget()
+    {
+        return plugin.getMyConfig().getSentryTickBudget();
+    }
+
+    /**
+     * a sentry is active if it has a target, is firing, loading or returning to its home position
+     */
+    private static boolean isActive(Cannon cannon)
+    {
+        return cannon.hasSentryEntity() || !cannon.isSentryHomedAfterFiring() || cannon.isFiring() || cannon.isLoading();
+    }
+
+    private static boolean isPlayerNearby(Cannon cannon, Map<UUID, List<Location>> players, double range)
+    {
+        Location loc = cannon.getLocation();
+        World world = loc.getWorld();
+        if (world == null)
+            return false;
+        List<Location> worldPlayers = players.computeIfAbsent(world.getUID(), k -> {
+            List<Location> list = new ArrayList<>();
+            for (Player player : world.getPlayers())
+                list.add(player.getLocation());
+            return list;
+        });
+        for (Location playerLoc : worldPlayers)
+        {
+            if (playerLoc.distanceSquared(loc) <= range * range)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,493 @@
+package at.pavlov.cannons.scheduler;
+
+import at.pavlov.cannons.Cannons;
+import at.pavlov.cannons.Enum.TargetType;
+import at.pavlov.cannons.TargetMotionTracker;
+import at.pavlov.cannons.cannon.Cannon;
+import at.pavlov.cannons.container.MovingObject;
+import at.pavlov.cannons.container.Target;
+import at.pavlov.cannons.projectile.Projectile;
+import at.pavlov.cannons.utils.BallisticSolver;
+import at.pavlov.cannons.utils.BlockSweep;
+import at.pavlov.cannons.utils.CannonsUtil;
+import at.pavlov.cannons.utils.LineOfSightCache;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.util.Vector;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+
+/**
+ * calculates the firing solutions of sentry cannons. The cannon and its possible targets are copied into snapshots,
+ * the trajectory is solved analytically and only verified against the blocks. Everything runs on the thread owning
+ * the cannon, the analytic solution is too fast to be worth a hop to an async thread.
+ */
+public class SentrySolver
+{
+    //the line of sight is checked for at most 200 blocks
+    private static final int MAX_SIGHT_DISTANCE = 200;
+    private static final double SIGHT_SEGMENT = 64.0;
+    //the surface is searched for up to 10 blocks from the impact
+    private static final double SURFACE_SEARCH_DISTANCE = 10.0;
+    private static final int MAX_VERIFY_ITERATIONS = 500;
+    //time of flight and aim are iterated until the intercept changes less than half a tick
+    private static final int MAX_LEAD_ITERATIONS = 5;
+    private static final double LEAD_PRECISION = 0.5;
+    //targets are not led further than this (ticks)
+    private static final double MAX_LEAD_TIME = 100.0;
+
+    private final Cannons plugin;
+    private final TargetMotionTracker motionTracker;
+    //sentries watching the same area check the same lines of sight again and again
+    private final LineOfSightCache lineOfSightCache = new LineOfSightCache();
+
+    /**
+     * everything the calculation needs to know about the cannon
+     */
+    private static final class CannonSnapshot
+    {
+        private final World world;
+        private final double muzzleX, muzzleY, muzzleZ;
+        //canAimYaw and canAimPitch of the cannon
+        private final double yawOffset, minHorizontal, maxHorizontal;
+        private final double pitchOffset, minVertical, maxVertical;
+        private final double maxVerticalPitch;
+        private final double velocity;
+        private final EntityType projectileType;
+        private final boolean indirectFire;
+        private final double angleStepSize;
+        private final double spread;
+        private final int maxRange;
+        //time from the solution until the projectile leaves the barrel (ticks)
+        private final double fuseTicks;
+        private final int ignoredBlocks;
+        //aim for the ground if the projectile has an area effect
+        private final boolean aimAtGround;
+
+        private CannonSnapshot(Cannon cannon)
+        {
+            Location muzzle = cannon.getMuzzle();
+            this.world = muzzle.getWorld();
+            this.muzzleX = muzzle.getX();
+            this.muzzleY = muzzle.getY();
+            this.muzzleZ = muzzle.getZ();
+            this.yawOffset = CannonsUtil.directionToYaw(cannon.getCannonDirection()) + cannon.getAdditionalHorizontalAngle();
+            this.minHorizontal = cannon.getMinHorizontalAngle();
+            this.maxHorizontal = cannon.getMaxHorizontalAngle();
+            this.pitchOffset = cannon.getCannonDesign().getDefaultVerticalAngle() + cannon.getAdditionalVerticalAngle();
+            this.minVertical = cannon.getMinVerticalAngle();
+            this.maxVertical = cannon.getMaxVerticalAngle();
+            this.maxVerticalPitch = cannon.getMaxVerticalPitch();
+            this.velocity = cannon.getCannonballVelocity();
+            this.projectileType = cannon.getProjectileEntityType();
+            this.indirectFire = cannon.getCannonDesign().isSentryIndirectFire();
+            this.angleStepSize = cannon.getCannonDesign().getAngleStepSize();
+            this.spread = cannon.getCannonDesign().getSentrySpread();
+            this.maxRange = cannon.getCannonDesign().getSentryMaxRange();
+            this.fuseTicks = cannon.getCannonDesign().getFuseBurnTime() * 20.0;
+
+            Projectile proj = cannon.isProjectileLoaded() ? cannon.getLoadedProjectile() : null;
+            this.ignoredBlocks = proj != null ? proj.getSentryIgnoredBlocks() : 0;
+            this.aimAtGround = proj != null && (proj.getExplosionPower() > 2. || (proj.getPlayerDamage() > 1. && proj.getPlayerDamageRange() > 2.));
+        }
+
+        private boolean canAimYaw(double yaw)
+        {
+            double horizontal = (yaw - yawOffset) % 360;
+            while (horizontal < -180)
+                horizontal = horizontal + 360;
+            return horizontal > minHorizontal && horizontal < maxHorizontal;
+        }
+
+        private boolean canAimPitch(double pitch)
+        {
+            double vertical = -pitch - pitchOffset;
+            return vertical > minVertical && vertical < maxVertical;
+        }
+    }
+
+    /**
+     * position of a possible target when the solution was requested
+     */
+    private static final class TargetSnapshot
+    {
+        private final Target target;
+        private final double centerX, centerY, centerZ;
+        private final double groundX, groundY, groundZ;
+        //smoothed horizontal velocity in blocks per tick
+        private final double velX, velZ;
+        private final boolean cannon;
+
+        private TargetSnapshot(Target target, Vector velocity)
+        {
+            this.target = target;
+            Location center = target.getCenterLocation();
+            this.centerX = center.getX();
+            this.centerY = center.getY();
+            this.centerZ = center.getZ();
+            Location ground = target.getGroundLocation();
+            this.groundX = ground != null ? ground.getX() : centerX;
+            this.groundY = ground != null ? ground.getY() : centerY;
+            this.groundZ = ground != null ? ground.getZ() : centerZ;
+            this.velX = velocity.getX();
+            this.velZ = velocity.getZ();
+            this.cannon = target.getTargetType() == TargetType.CANNON;
+        }
+    }
+
+    /**
+     * angles to hit a target
+     */
+    public static final class Solution
+    {
+        private final Target target;
+        private final double yaw;
+        private final double pitch;
+
+        private Solution(Target target, double yaw, double pitch)
+        {
+            this.target = target;
+            this.yaw = yaw;
+            this.pitch = pitch;
+        }
+
+        /**
+         * @return the chosen target or null if there is no solution for any target
+         */
+        public Target getTarget() {
+            return target;
+        }
+
+        public double getYaw() {
+            return yaw;
+        }
+
+        public double getPitch() {
+            return pitch;
+        }
+    }
+
+    /**
+     * aim calculated without reading blocks, it is verified against the blocks before it is used
+     */
+    private static final class Aim
+    {
+        private final TargetSnapshot target;
+        private final double yaw;
+        private final double pitch;
+        //position of the target when the projectile arrives
+        private final double targetX, targetY, targetZ;
+
+        private Aim(TargetSnapshot target, double yaw, double pitch, double targetX, double targetY, double targetZ)
+        {
+            this.target = target;
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.targetX = targetX;
+            this.targetY = targetY;
+            this.targetZ = targetZ;
+        }
+    }
+
+    /**
+     * reads the blocks of the world. Blocks in chunks which are not loaded or owned by a different region are not
+     * read, they are unknown. Has to be used by the thread owning the cannon
+     */
+    private static final class WorldReader implements BlockSweep.BlockReader
+    {
+        private final World world;
+        //the chunk of the last block, most reads are in the same chunk
+        private long lastChunk;
+        private boolean hasLastChunk;
+        private boolean lastReadable;
+        private boolean missing;
+
+        private WorldReader(World world)
+        {
+            this.world = world;
+        }
+
+        @Override
+        public Material getType(int x, int y, int z)
+        {
+            long chunk = LineOfSightCache.getChunkKey(x >> 4, z >> 4);
+            if (!hasLastChunk || chunk != lastChunk)
+            {
+                hasLastChunk = true;
+                lastChunk = chunk;
+                lastReadable = world.isChunkLoaded(x >> 4, z >> 4) && Bukkit.isOwnedByCurrentRegion(world, x >> 4, z >> 4);
+            }
+            if (!lastReadable)
+            {
+                missing = true;
+                return null;
+            }
+            return world.getType(x, y, z);
+        }
+    }
+
+    public SentrySolver(Cannons plugin, TargetMotionTracker motionTracker)
+    {
+        this.plugin = plugin;
+        this.motionTracker = motionTracker;
+    }
+
+    /**
+     * calculates the firing solution for the first target which the cannon can see and aim at. Has to be called by the
+     * thread owning the cannon
+     * @param cannon sentry cannon
+     * @param candidates possible targets in the order they are preferred
+     * @return the solution, without target if no target can be hit
+     */
+    public Solution solve(Cannon cannon, List<Target> candidates)
+    {
+        World world = cannon.getMuzzle().getWorld();
+        if (world == null)
+            return new Solution(null, 0., 0.);
+
+        CannonSnapshot cannonSnapshot = new CannonSnapshot(cannon);
+        WorldReader reader = new WorldReader(world);
+        TargetSnapshot chosen = null;
+        for (Target target : candidates)
+        {
+            Location center = target.getCenterLocation();
+            if (center == null || !world.equals(center.getWorld()))
+                continue;
+            TargetSnapshot snapshot = new TargetSnapshot(target, motionTracker.getVelocity(target.getUniqueId()));
+            if (canFindTargetSolution(cannonSnapshot, snapshot, reader))
+            {
+                chosen = snapshot;
+                break;
+            }
+        }
+        if (chosen == null)
+            return new Solution(null, 0., 0.);
+
+        return finishTargetSolution(cannonSnapshot, calculateTargetSolution(cannonSnapshot, chosen), reader);
+    }
+
+    /**
+     * find a possible solution to fire the cannon - this is just an estimation
+     * @return true if the cannon can fire on this target
+     */
+    private boolean canFindTargetSolution(CannonSnapshot cannon, TargetSnapshot target, WorldReader reader)
+    {
+        double dx = target.centerX - cannon.muzzleX;
+        double dy = target.centerY - cannon.muzzleY;
+        double dz = target.centerZ - cannon.muzzleZ;
+        if (dx * dx + dy * dy + dz * dz > cannon.maxRange * cannon.maxRange)
+            return false;
+
+        //can the cannon fire on this target
+        if (!cannon.canAimYaw(CannonsUtil.vectorToYaw(new Vector(dx, dy, dz))))
+            return false;
+
+        int ignoredBlocks = target.cannon ? 1 : cannon.ignoredBlocks;
+        return hasLineOfSight(cannon, target, ignoredBlocks, reader);
+    }
+
+    /**
+     * counts the solid, non transparent blocks between the muzzle and the target. Unknown blocks block the sight.
+     * The result is cached until a block in one of the chunks along the line is changed
+     */
+    private boolean hasLineOfSight(CannonSnapshot cannon, TargetSnapshot target, int ignoredBlocks, WorldReader reader)
+    {
+        double dx = target.centerX - cannon.muzzleX;
+        double dy = target.centerY - cannon.muzzleY;
+        double dz = target.centerZ - cannon.muzzleZ;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance < 1.0E-6)
+            return true;
+
+        UUID world = cannon.world.getUID();
+        int muzzleX = Location.locToBlock(cannon.muzzleX), muzzleY = Location.locToBlock(cannon.muzzleY), muzzleZ = Location.locToBlock(cannon.muzzleZ);
+        int targetX = Location.locToBlock(target.centerX), targetY = Location.locToBlock(target.centerY), targetZ = Location.locToBlock(target.centerZ);
+        //the cache is checked before any block is read
+        int cacheSize = plugin.getMyConfig().getSentryLineOfSightCacheSize();
+        if (cacheSize > 0)
+        {
+            Boolean cached = lineOfSightCache.get(world, muzzleX, muzzleY, muzzleZ, targetX, targetY, targetZ, ignoredBlocks);
+            if (cached != null)
+                return cached;
+        }
+
+        //remember the chunks read by the check, a line with unknown blocks is not cached
+        long time = System.currentTimeMillis();
+        HashSet<Long> chunks = new HashSet<>();
+        reader.missing = false;
+        BlockSweep.BlockReader recorder = (x, y, z) -> {
+            chunks.add(LineOfSightCache.getChunkKey(x >> 4, z >> 4));
+            return reader.getType(x, y, z);
+        };
+        //search for solid non transparent blocks (liquids are ignored)
+        int[] nontransparent = new int[1];
+        Predicate<Material> blocked = type -> {
+            if (type == null || (type.isSolid() && type.isOccluding()))
+                nontransparent[0]++;
+            return nontransparent[0] > ignoredBlocks;
+        };
+        //the sweep is split into short segments, a long sweep only checks its end
+        double length = Math.min(distance, MAX_SIGHT_DISTANCE);
+        boolean visible = true;
+        for (double s = 0; s < length && visible; s += SIGHT_SEGMENT)
+        {
+            double from = s / distance;
+            double to = Math.min(s + SIGHT_SEGMENT, length) / distance;
+            visible = BlockSweep.sweep(cacheSize > 0 ? recorder : reader, blocked, cannon.muzzleX + dx * from, cannon.muzzleY + dy * from, cannon.muzzleZ + dz * from,
+                    cannon.muzzleX + dx * to, cannon.muzzleY + dy * to, cannon.muzzleZ + dz * to) == null;
+        }
+
+        if (cacheSize > 0 && !reader.missing)
+        {
+            long[] chunkKeys = new long[chunks.size()];
+            int i = 0;
+            for (long key : chunks)
+                chunkKeys[i++] = key;
+            lineOfSightCache.put(world, muzzleX, muzzleY, muzzleZ, targetX, targetY, targetZ, ignoredBlocks, visible, time, chunkKeys, cacheSize);
+        }
+        return visible;
+    }
+
+    /**
+     * find exact solution to fire the cannon. This does not read any blocks
+     * @return the aim or null if there is no solution
+     */
+    private static Aim calculateTargetSolution(CannonSnapshot cannon, TargetSnapshot target)
+    {
+        if (cannon.velocity < 0.01)
+            return null;
+
+        //aim for the center of the target if there is an area effect of the projectile
+        double targetX = cannon.aimAtGround ? target.groundX : target.centerX;
+        double targetY = cannon.aimAtGround ? target.groundY : target.centerY;
+        double targetZ = cannon.aimAtGround ? target.groundZ : target.centerZ;
+        double drag = MovingObject.getDrag(cannon.projectileType, false);
+        double gravity = MovingObject.getGravity(cannon.projectileType);
+        double maxElevation = cannon.indirectFire ? -cannon.maxVerticalPitch : 90.;
+
+        //lead the target: the time of flight depends on the aim and the aim on the time of flight
+        double time = cannon.fuseTicks;
+        double leadX = 0., leadZ = 0.;
+        double yaw = 0.;
+        double elevation = Double.NaN;
+        for (int i = 0; i < MAX_LEAD_ITERATIONS; i++)
+        {
+            leadX = target.velX * Math.min(time, MAX_LEAD_TIME);
+            leadZ = target.velZ * Math.min(time, MAX_LEAD_TIME);
+            double dx = targetX + leadX - cannon.muzzleX;
+            double dz = targetZ + leadZ - cannon.muzzleZ;
+            Vector direction = new Vector(target.centerX + leadX - cannon.muzzleX, target.centerY - cannon.muzzleY, target.centerZ + leadZ - cannon.muzzleZ);
+            yaw = CannonsUtil.vectorToYaw(direction);
+            //the line of sight is the lowest possible elevation
+            double minElevation = -CannonsUtil.vectorToPitch(direction);
+
+            //solve the trajectory analytically, the simulation is only used to verify the solution
+            double distance = Math.sqrt(dx * dx + dz * dz);
+            elevation = BallisticSolver.findElevation(distance, targetY - cannon.muzzleY, cannon.velocity, drag, gravity,
+                    minElevation, maxElevation, cannon.angleStepSize, cannon.indirectFire);
+            if (Double.isNaN(elevation))
+                return null;
+            //a target which does not move is hit without leading it
+            if (target.velX == 0. && target.velZ == 0.)
+                break;
+            double flight = BallisticSolver.flightTime(distance, elevation, cannon.velocity, drag);
+            if (Double.isNaN(flight))
+                return null;
+            double newTime = cannon.fuseTicks + flight;
+            if (Math.abs(newTime - time) < LEAD_PRECISION)
+                break;
+            time = newTime;
+        }
+        return new Aim(target, yaw, -elevation, target.centerX + leadX, target.centerY, target.centerZ + leadZ);
+    }
+
+    /**
+     * verifies the aim against the blocks and adds the spread. Has to be called by the thread owning the cannon
+     * @return the solution, without target if the aim is blocked or the cannon can't aim there
+     */
+    private static Solution finishTargetSolution(CannonSnapshot cannon, Aim aim, WorldReader reader)
+    {
+        Solution none = new Solution(null, 0., 0.);
+        if (aim == null || !verifyTargetSolution(cannon, aim.targetX, aim.targetY, aim.targetZ, aim.yaw, aim.pitch, 2., reader))
+            return none;
+
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        double pitch = aim.pitch + cannon.spread * rand.nextGaussian();
+        double yaw = aim.yaw + cannon.spread * rand.nextGaussian();
+        if (!cannon.canAimPitch(pitch) || !cannon.canAimYaw(yaw))
+            return none;
+        return new Solution(aim.target.target, yaw, pitch);
+    }
+
+    /**
+     * verifies if the trajectory is blocked by terrain
+     * @return true if the target is not blocked or close to the impact
+     */
+    private static boolean verifyTargetSolution(CannonSnapshot cannon, double targetX, double targetY, double targetZ, double yaw, double pitch, double maxdistance, BlockSweep.BlockReader reader)
+    {
+        Vector vel = CannonsUtil.directionToVector(yaw, pitch, Math.max(cannon.velocity, 0.1));
+        MovingObject predictor = new MovingObject(new Location(cannon.world, cannon.muzzleX, cannon.muzzleY, cannon.muzzleZ), vel, cannon.projectileType);
+        double maxRange = cannon.maxRange * 1.2;
+
+        //squared distances, the comparison is the same
+        double targetDist = Double.MAX_VALUE;
+
+        //make a few iterations until we hit something
+        for (int i = 0; predictor.distanceSquared(cannon.muzzleX, cannon.muzzleY, cannon.muzzleZ) < maxRange * maxRange && i < MAX_VERIFY_ITERATIONS; i++)
+        {
+            //is target distance shorter than before
+            double newDist = predictor.distanceSquared(targetX, targetY, targetZ);
+            if (newDist < targetDist)
+                targetDist = newDist;
+            else
+                // missed the target
+                return true;
+
+            //see if we hit something, but wait until the cannonball is 1 block away (safety first)
+            if (predictor.distanceSquared(cannon.muzzleX, cannon.muzzleY, cannon.muzzleZ) > 1.)
+            {
+                Material type = reader.getType(predictor.getBlockX(), predictor.getBlockY(), predictor.getBlockZ());
+                //the blocks of a chunk which is not loaded are unknown
+                if (type == null)
+                    return false;
+                if (!type.isAir())
+                {
+                    predictor.revertProjectileLocation(false);
+                    Vector surface = findSurface(predictor, reader);
+                    return surface.distanceSquared(new Vector(targetX, targetY, targetZ)) < maxdistance * maxdistance;
+                }
+            }
+            predictor.updateProjectileLocation(false);
+        }
+        return false;
+    }
+
+    /**
+     * find the surface in the direction of the projectile, same as CannonsUtil.findSurface
+     * @return the location of one block in front of the surface
+     */
+    private static Vector findSurface(MovingObject predictor, BlockSweep.BlockReader reader)
+    {
+        Vector start = new Vector(predictor.getX(), predictor.getY(), predictor.getZ());
+        Vector direction = predictor.getVel();
+        Material startType = reader.getType(predictor.getBlockX(), predictor.getBlockY(), predictor.getBlockZ());
+        if (startType == null || !startType.isAir() || direction.lengthSquared() < 0.01)
+            return start;
+
+        Vector end = start.clone().add(direction.normalize().multiply(SURFACE_SEARCH_DISTANCE));
+        BlockSweep.Hit hit = BlockSweep.sweep(reader, type -> type == null || !type.isAir(),
+                start.getX(), start.getY(), start.getZ(), end.getX(), end.getY(), end.getZ());
+        if (hit == null)
+            return new Vector(end.getBlockX(), end.getBlockY(), end.getBlockZ());
+        //the point of the hit is in the last empty block
+        return new Vector(Location.locToBlock(hit.getX()), Location.locToBlock(hit.getY()), Location.locToBlock(hit.getZ()));
+    }
+}
@@ -0,0 +1,213 @@
+package at.pavlov.cannons.scheduler;
+
+import at.pavlov.cannons.Cannons;
+import org.bukkit.Location;
+
+import java.util.logging.Level;
+
+
+/**
+ * hierarchical timing wheel for the delayed tasks of the plugin (time fuses, cluster explosions, magazine rounds,
+ * fake block expiry). One repeating task advances the wheel every tick, instead of one scheduler entry for every task.
+ * Every level has 64 slots, a slot of the first level is one tick, a slot of the next level covers all slots of the
+ * level below. A timer is moved to a finer level when its slot is reached, so scheduling and canceling is O(1).
+ */
+public class TimingWheel
+{
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    //longest delay in ticks (about 9 days)
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final Cannons plugin;
+    //first timer of every slot, the timers of a slot are a doubly linked list
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private long currentTick;
+
+    /**
+     * a scheduled task. Can be canceled as long as it has not run
+     */
+    public class Timer
+    {
+        private final Runnable task;
+        //the task is executed by the region owning this location, can be null
+        private final Location location;
+        private final long expiry;
+        private volatile boolean canceled;
+        private int level = -1;
+        private int slot;
+        private Timer prev;
+        private Timer next;
+
+        private Timer(Runnable task, Location location, long expiry)
+        {
+            this.task = task;
+            this.location = location;
+            this.expiry = expiry;
+        }
+
+        /**
+         * removes the timer from the wheel, the task will not run
+         */
+        public void cancel()
+        {
+            TimingWheel.this.cancel(this);
+        }
+
+        /**
+         * @return true if the task is waiting in the wheel and was not canceled
+         */
+        public boolean isScheduled()
+        {
+            synchronized (TimingWheel.this)
+            {
+                return level >= 0 && !canceled;
+            }
+        }
+    }
+
+    public TimingWheel(Cannons plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * starts the repeating task which advances the wheel
+     */
+    public void setupScheduler()
+    {
+        plugin.getRegionTaskScheduler().runTimer(this::tick, 1L, 1L);
+    }
+
+    /**
+     * runs the task after the given delay
+     * @param task task to run
+     * @param delay delay in ticks, at least one tick
+     * @return the timer to cancel the task
+     */
+    public Timer schedule(Runnable task, long delay)
+    {
+        return schedule(task, null, delay);
+    }
+
+    /**
+     * runs the task after the given delay. On regionized servers the task is executed by the region owning the location
+     * @param task task to run
+     * @param location location the task is working on, can be null
+     * @param delay delay in ticks, at least one tick
+     * @return the timer to cancel the task
+     */
+    public synchronized Timer schedule(Runnable task, Location location, long delay)
+    {
+        delay = Math.max(1L, Math.min(delay, MAX_DELAY));
+        Timer timer = new Timer(task, location, currentTick + delay);
+        insert(timer);
+        return timer;
+    }
+
+    private synchronized void cancel(Timer timer)
+    {
+        //the timer might already be taken from the wheel in this tick
+        timer.canceled = true;
+        if (timer.level >= 0)
+            unlink(timer);
+    }
+
+    /**
+     * advances the wheel by one tick and runs all tasks which are due
+     */
+    void tick()
+    {
+        Timer due;
+        synchronized (this)
+        {
+            currentTick++;
+            //move the timers of the coarser levels down, starting with the highest level
+            for (int level = LEVELS - 1; level > 0; level--)
+            {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0)
+                    cascade(level, (int) (currentTick >> (SLOT_BITS * level)) & SLOT_MASK);
+            }
+
+            int slot = (int) currentTick & SLOT_MASK;
+            due = slots[0][slot];
+            slots[0][slot] = null;
+            for (Timer timer = due; timer != null; timer = timer.next)
+                timer.level = -1;
+        }
+
+        while (due != null)
+        {
+            Timer next = due.next;
+            due.prev = null;
+            due.next = null;
+            if (!due.canceled)
+                run(due);
+            due = next;
+        }
+    }
+
+    private void run(Timer timer)
+    {
+        try
+        {
+            if (timer.location != null)
+                plugin.getRegionTaskScheduler().runAt(timer.location, timer.task);
+            else
+                timer.task.run();
+        }
+        catch (Exception e)
+        {
+            plugin.getLogger().log(Level.SEVERE, "Error in delayed task", e);
+        }
+    }
+
+    /**
+     * inserts all timers of this slot again, they will end up in a lower level
+     */
+    private void cascade(int level, int slot)
+    {
+        Timer timer = slots[level][slot];
+        slots[level][slot] = null;
+        while (timer != null)
+        {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    private void insert(Timer timer)
+    {
+        long delta = timer.expiry - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1))))
+            level++;
+        int slot = (int) (timer.expiry >> (SLOT_BITS * level)) & SLOT_MASK;
+
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slots[level][slot];
+        if (timer.next != null)
+            timer.next.prev = timer;
+        slots[level][slot] = timer;
+    }
+
+    private void unlink(Timer timer)
+    {
+        if (timer.prev != null)
+            timer.prev.next = timer.next;
+        else
+            slots[timer.level][timer.slot] = timer.next;
+        if (timer.next != null)
+            timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+}
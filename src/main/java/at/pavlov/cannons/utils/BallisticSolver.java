@@ -0,0 +1,145 @@
+package at.pavlov.cannons.utils;
+
+
+/**
+ * closed form solution of the projectile movement. Minecraft updates a projectile every tick with
+ * pos += vel; vel = vel * drag - gravity, so after n ticks
+ * horizontal = vh * (1 - drag^n) / (1 - drag)
+ * height = vy * (1 - drag^n) / (1 - drag) - gravity / (1 - drag) * (n - (1 - drag^n) / (1 - drag))
+ * Solving the first equation for n gives the height of the projectile at any horizontal distance without simulating it.
+ */
+public class BallisticSolver
+{
+    //step size in degrees to search the elevation before refining it
+    private static final double SCAN_STEP = 1.0;
+    private static final double MAX_ELEVATION = 89.9;
+    private static final int MAX_REFINE_ITERATIONS = 30;
+
+    /**
+     * calculates the height of the projectile relative to the muzzle at a horizontal distance
+     * @param distance horizontal distance to the muzzle
+     * @param elevation elevation of the barrel in degrees (positive is up)
+     * @param speed muzzle velocity in blocks per tick
+     * @param drag factor the velocity is multiplied with every tick
+     * @param gravity velocity lost by gravity every tick
+     * @return height at this distance or NaN if the projectile can't reach this distance
+     */
+    public static double heightAtDistance(double distance, double elevation, double speed, double drag, double gravity)
+    {
+        double rad = Math.toRadians(elevation);
+        double vh = speed * Math.cos(rad);
+        double vy = speed * Math.sin(rad);
+        if (vh <= 0.0)
+            return Double.NaN;
+
+        //sum of the geometric series of drag^k for k < n
+        double sum = distance / vh;
+        double remaining = 1.0 - sum * (1.0 - drag);
+        if (remaining <= 0.0)
+            return Double.NaN;
+
+        double ticks = drag < 1.0 ? Math.log(remaining) / Math.log(drag) : sum;
+        if (drag >= 1.0)
+            return vy * ticks - gravity * ticks * (ticks - 1) / 2.0;
+        return vy * sum - gravity / (1.0 - drag) * (ticks - sum);
+    }
+
+    /**
+     * calculates the time the projectile needs to reach a horizontal distance
+     * @param distance horizontal distance to the muzzle
+     * @param elevation elevation of the barrel in degrees (positive is up)
+     * @param speed muzzle velocity in blocks per tick
+     * @param drag factor the velocity is multiplied with every tick
+     * @return time in ticks or NaN if the projectile can't reach this distance
+     */
+    public static double flightTime(double distance, double elevation, double speed, double drag)
+    {
+        double vh = speed * Math.cos(Math.toRadians(elevation));
+        if (vh <= 0.0)
+            return Double.NaN;
+
+        double sum = distance / vh;
+        if (drag >= 1.0)
+            return sum;
+        double remaining = 1.0 - sum * (1.0 - drag);
+        if (remaining <= 0.0)
+            return Double.NaN;
+        return Math.log(remaining) / Math.log(drag);
+    }
+
+    /**
+     * finds the elevation of the barrel to hit a target
+     * @param distance horizontal distance to the target
+     * @param height height of the target relative to the muzzle
+     * @param speed muzzle velocity in blocks per tick
+     * @param drag factor the velocity is multiplied with every tick
+     * @param gravity velocity lost by gravity every tick
+     * @param minElevation lowest elevation in degrees to search
+     * @param maxElevation highest elevation in degrees to search
+     * @param precision the solution is at most this many degrees above the exact solution
+     * @param highArc true for indirect fire (the steeper one of both solutions)
+     * @return elevation in degrees where the projectile passes at or above the target, NaN if there is none
+     */
+    public static double findElevation(double distance, double height, double speed, double drag, double gravity, double minElevation, double maxElevation, double precision, boolean highArc)
+    {
+        minElevation = Math.max(minElevation, -MAX_ELEVATION);
+        maxElevation = Math.min(maxElevation, MAX_ELEVATION);
+        if (minElevation > maxElevation)
+            return Double.NaN;
+
+        //the direct shot is the lowest elevation passing above the target, the indirect shot the highest
+        double below;
+        double above = Double.NaN;
+        if (!highArc)
+        {
+            below = minElevation;
+            if (isAbove(distance, height, speed, drag, gravity, minElevation))
+                return minElevation;
+            for (double e = minElevation + SCAN_STEP; below < maxElevation; e += SCAN_STEP)
+            {
+                e = Math.min(e, maxElevation);
+                if (isAbove(distance, height, speed, drag, gravity, e))
+                {
+                    above = e;
+                    break;
+                }
+                below = e;
+            }
+        }
+        else
+        {
+            below = maxElevation;
+            if (isAbove(distance, height, speed, drag, gravity, maxElevation))
+                return maxElevation;
+            for (double e = maxElevation - SCAN_STEP; below > minElevation; e -= SCAN_STEP)
+            {
+                e = Math.max(e, minElevation);
+                if (isAbove(distance, height, speed, drag, gravity, e))
+                {
+                    above = e;
+                    break;
+                }
+                below = e;
+            }
+        }
+        if (Double.isNaN(above))
+            return Double.NaN;
+
+        //refine the solution between both elevations
+        for (int i = 0; i < MAX_REFINE_ITERATIONS && Math.abs(above - below) > precision; i++)
+        {
+            double mid = (above + below) / 2.0;
+            if (isAbove(distance, height, speed, drag, gravity, mid))
+                above = mid;
+            else
+                below = mid;
+        }
+        return above;
+    }
+
+    private static boolean isAbove(double distance, double height, double speed, double drag, double gravity, double elevation)
+    {
+        double y = heightAtDistance(distance, elevation, speed, drag, gravity);
+        return !Double.isNaN(y) && y >= height;
+    }
+}
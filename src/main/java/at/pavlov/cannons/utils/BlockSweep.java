@@ -0,0 +1,301 @@
+package at.pavlov.cannons.utils;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+
+import java.util.function.Predicate;
+
+
+/**
+ * walks along a line through all blocks it touches (3D-DDA) and returns the first solid block. Fast projectiles move
+ * several blocks per tick, so checking only the block at the end of the movement lets them pass through thin walls.
+ */
+public class BlockSweep
+{
+    //more blocks are not checked in one sweep, e.g. if the projectile was teleported
+    private static final int MAX_BLOCKS = 256;
+    //the impact point is moved back by this part of the movement, so it is outside of the hit block
+    private static final double IMPACT_OFFSET = 0.001;
+    //more changes between air and liquid are not followed in one sweep
+    private static final int MAX_LIQUID_CHANGES = 8;
+
+    /**
+     * reads the material of a block, e.g. from the world or from chunk snapshots
+     */
+    public interface BlockReader
+    {
+        /**
+         * @return material of the block or null if the block is not available
+         */
+        Material getType(int x, int y, int z);
+    }
+
+    /**
+     * the block where the line enters a solid block
+     */
+    public static class Hit
+    {
+        private final Material type;
+        private final int blockX;
+        private final int blockY;
+        private final int blockZ;
+        private final BlockFace face;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        private Hit(Material type, int blockX, int blockY, int blockZ, BlockFace face, double x, double y, double z)
+        {
+            this.type = type;
+            this.blockX = blockX;
+            this.blockY = blockY;
+            this.blockZ = blockZ;
+            this.face = face;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /**
+         * returns the location of the hit block
+         * @param world world of the block
+         * @return location of the block
+         */
+        public Location getBlockLocation(World world)
+        {
+            return new Location(world, blockX, blockY, blockZ);
+        }
+
+        /**
+         * @return material of the hit block, null if the block was not available
+         */
+        public Material getType() {
+            return type;
+        }
+
+        public int getBlockX() {
+            return blockX;
+        }
+
+        public int getBlockY() {
+            return blockY;
+        }
+
+        public int getBlockZ() {
+            return blockZ;
+        }
+
+        /**
+         * face of the block which was hit
+         * @return the face pointing towards the start of the line
+         */
+        public BlockFace getFace() {
+            return face;
+        }
+
+        /**
+         * @return x coordinate of the point just before the line enters the block
+         */
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+    }
+
+    /**
+     * keeps track if a line is in a liquid over several sweeps and where it has entered a liquid in the last sweep
+     */
+    public static class LiquidTracker
+    {
+        private boolean inLiquid;
+        private Hit surface;
+
+        /**
+         * @return true if the end of the last sweep is in a liquid
+         */
+        public boolean isInLiquid() {
+            return inLiquid;
+        }
+
+        public void setInLiquid(boolean inLiquid) {
+            this.inLiquid = inLiquid;
+        }
+
+        /**
+         * sets the result of a sweep which was done before, e.g. for a precomputed path
+         */
+        public void update(boolean inLiquid, Hit surface) {
+            this.inLiquid = inLiquid;
+            this.surface = surface;
+        }
+
+        /**
+         * returns the first point where the last sweep has entered a liquid
+         * @return the surface hit or null if the last sweep has not entered a liquid
+         */
+        public Hit getSurface() {
+            return surface;
+        }
+    }
+
+    /**
+     * returns true if a projectile can't pass this block. Air and liquids are not solid
+     * @param type material of the block
+     * @return true if the block is solid
+     */
+    public static boolean isSolid(Material type)
+    {
+        return type != null && !type.isAir() && type != Material.WATER && type != Material.LAVA;
+    }
+
+    /**
+     * returns true if the block is a liquid which slows down a projectile
+     * @param type material of the block
+     * @return true if the block is water or lava
+     */
+    public static boolean isLiquid(Material type)
+    {
+        return type == Material.WATER || type == Material.LAVA;
+    }
+
+    /**
+     * finds the first solid block on the line from start to end like sweep, and updates the tracker when the line
+     * enters or leaves a liquid. The same blocks are read, so the liquid is found without reading any other block
+     * @param reader reads the blocks
+     * @param tracker liquid state at the start, it is updated to the state at the end of the line
+     * @return the first solid block, a hit with the material null if a block is not available, or null
+     */
+    public static Hit sweepLiquids(BlockReader reader, LiquidTracker tracker, double startX, double startY, double startZ, double endX, double endY, double endZ)
+    {
+        tracker.surface = null;
+        for (int i = 0; i < MAX_LIQUID_CHANGES; i++)
+        {
+            final boolean inLiquid = tracker.inLiquid;
+            Hit hit = sweep(reader, type -> type == null || isSolid(type) || isLiquid(type) != inLiquid, startX, startY, startZ, endX, endY, endZ);
+            if (hit == null || hit.getType() == null || isSolid(hit.getType()))
+                return hit;
+
+            //the line has entered or left a liquid, continue from there
+            tracker.inLiquid = !inLiquid;
+            if (tracker.inLiquid && tracker.surface == null)
+                tracker.surface = hit;
+            startX = hit.getX();
+            startY = hit.getY();
+            startZ = hit.getZ();
+        }
+        return sweep(reader, BlockSweep::isSolid, startX, startY, startZ, endX, endY, endZ);
+    }
+
+    /**
+     * finds the first solid block on the line from start to end. The block of the start point is not checked.
+     * @param world world of the line
+     * @return the hit or null if all blocks are not solid
+     */
+    public static Hit sweep(World world, double startX, double startY, double startZ, double endX, double endY, double endZ)
+    {
+        return sweep(world::getType, BlockSweep::isSolid, startX, startY, startZ, endX, endY, endZ);
+    }
+
+    /**
+     * finds the first block on the line from start to end where the condition is true.
+     * The block of the start point is not checked.
+     * @param reader reads the blocks
+     * @param stop the sweep stops at the first block where this is true, the material is null if the block is not available
+     * @return the hit or null if the condition was not true for any block
+     */
+    public static Hit sweep(BlockReader reader, Predicate<Material> stop, double startX, double startY, double startZ, double endX, double endY, double endZ)
+    {
+        int x = Location.locToBlock(startX);
+        int y = Location.locToBlock(startY);
+        int z = Location.locToBlock(startZ);
+        int endBlockX = Location.locToBlock(endX);
+        int endBlockY = Location.locToBlock(endY);
+        int endBlockZ = Location.locToBlock(endZ);
+        int steps = Math.abs(endBlockX - x) + Math.abs(endBlockY - y) + Math.abs(endBlockZ - z);
+        if (steps == 0)
+            return null;
+
+        double dx = endX - startX;
+        double dy = endY - startY;
+        double dz = endZ - startZ;
+
+        //too far for a sweep, only check the end
+        if (steps > MAX_BLOCKS)
+        {
+            Material type = reader.getType(endBlockX, endBlockY, endBlockZ);
+            if (!stop.test(type))
+                return null;
+            return new Hit(type, endBlockX, endBlockY, endBlockZ, getFace(dx, dy, dz), endX - dx * IMPACT_OFFSET, endY - dy * IMPACT_OFFSET, endZ - dz * IMPACT_OFFSET);
+        }
+
+        //direction of the steps, distance (as part of the line) to the next block border and between two borders
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+        double deltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+        double deltaY = stepY != 0 ? Math.abs(1.0 / dy) : Double.POSITIVE_INFINITY;
+        double deltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.POSITIVE_INFINITY;
+        double maxX = stepX > 0 ? (x + 1 - startX) / dx : stepX < 0 ? (x - startX) / dx : Double.POSITIVE_INFINITY;
+        double maxY = stepY > 0 ? (y + 1 - startY) / dy : stepY < 0 ? (y - startY) / dy : Double.POSITIVE_INFINITY;
+        double maxZ = stepZ > 0 ? (z + 1 - startZ) / dz : stepZ < 0 ? (z - startZ) / dz : Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < steps; i++)
+        {
+            double t;
+            BlockFace face;
+            if (maxX < maxY && maxX < maxZ)
+            {
+                x += stepX;
+                t = maxX;
+                maxX += deltaX;
+                face = stepX > 0 ? BlockFace.WEST : BlockFace.EAST;
+            }
+            else if (maxY < maxZ)
+            {
+                y += stepY;
+                t = maxY;
+                maxY += deltaY;
+                face = stepY > 0 ? BlockFace.DOWN : BlockFace.UP;
+            }
+            else
+            {
+                z += stepZ;
+                t = maxZ;
+                maxZ += deltaZ;
+                face = stepZ > 0 ? BlockFace.NORTH : BlockFace.SOUTH;
+            }
+
+            Material type = reader.getType(x, y, z);
+            if (stop.test(type))
+            {
+                t = Math.max(0.0, t - IMPACT_OFFSET);
+                return new Hit(type, x, y, z, face, startX + dx * t, startY + dy * t, startZ + dz * t);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns the face which is hit by a line in this direction, the axis with the largest movement is used
+     */
+    private static BlockFace getFace(double dx, double dy, double dz)
+    {
+        double ax = Math.abs(dx);
+        double ay = Math.abs(dy);
+        double az = Math.abs(dz);
+        if (ax >= ay && ax >= az)
+            return dx > 0 ? BlockFace.WEST : BlockFace.EAST;
+        if (ay >= az)
+            return dy > 0 ? BlockFace.DOWN : BlockFace.UP;
+        return dz > 0 ? BlockFace.NORTH : BlockFace.SOUTH;
+    }
+}
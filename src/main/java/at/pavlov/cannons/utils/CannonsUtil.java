@@ -592,7 +592,7 @@ public class CannonsUtil
 //        try
 //        {
             location.getWorld().playSound(location, Sound.BLOCK_NOTE_BLOCK_PLING  , 0.25f, 0.75f);
-            Bukkit.getScheduler().scheduleSyncDelayedTask(Cannons.getPlugin(), new Runnable()
+            Cannons.getPlugin().getRegionTaskScheduler().runLater(location, new Runnable()
             {
                 @Override public void run()
                 {
@@ -1081,4 +1081,51 @@ public class CannonsUtil
             return Material.AIR.createBlockData();
         }
     }
+
+    /**
+     * packs the coordinates of a block into a long (26 bit for x and z, 12 bit for y)
+     * @param x x coordinate of the block
+     * @param y y coordinate of the block
+     * @param z z coordinate of the block
+     * @return packed block coordinates
+     */
+    public static long toBlockKey(int x, int y, int z){
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    /**
+     * packs the block coordinates of a location into a long
+     * @param loc location of the block
+     * @return packed block coordinates
+     */
+    public static long toBlockKey(Location loc){
+        return toBlockKey(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+    }
+
+    /**
+     * returns the x coordinate of packed block coordinates
+     * @param key packed block coordinates
+     * @return x coordinate of the block
+     */
+    public static int getBlockKeyX(long key){
+        return (int) (key >> 38);
+    }
+
+    /**
+     * returns the y coordinate of packed block coordinates
+     * @param key packed block coordinates
+     * @return y coordinate of the block
+     */
+    public static int getBlockKeyY(long key){
+        return (int) (key << 52 >> 52);
+    }
+
+    /**
+     * returns the z coordinate of packed block coordinates
+     * @param key packed block coordinates
+     * @return z coordinate of the block
+     */
+    public static int getBlockKeyZ(long key){
+        return (int) (key << 26 >> 38);
+    }
 }
@@ -0,0 +1,93 @@
+package at.pavlov.cannons.utils;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * remembers when blocks in a chunk were changed the last time. Results calculated from chunk snapshots are only valid
+ * as long as the chunks were not changed after the snapshot was taken.
+ */
+public class ChunkChangeTracker
+{
+    //changes older than this are removed, precomputed results are not used for longer
+    private static final long MAX_AGE = 120000;
+    private static final long PRUNE_INTERVAL = 10000;
+
+    //world -> chunk key -> time of the last change
+    private static final ConcurrentHashMap<UUID, ConcurrentHashMap<Long, Long>> changes = new ConcurrentHashMap<UUID, ConcurrentHashMap<Long, Long>>();
+    private static volatile long lastPrune = System.currentTimeMillis();
+
+    /**
+     * marks the chunk of this block as changed
+     * @param block the changed block
+     */
+    public static void markChanged(Block block)
+    {
+        markChanged(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    /**
+     * marks the chunk as changed
+     * @param world world of the chunk
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     */
+    public static void markChanged(World world, int chunkX, int chunkZ)
+    {
+        long now = System.currentTimeMillis();
+        changes.computeIfAbsent(world.getUID(), k -> new ConcurrentHashMap<Long, Long>()).put(getChunkKey(chunkX, chunkZ), now);
+        if (now - lastPrune > PRUNE_INTERVAL)
+            prune(now);
+    }
+
+    /**
+     * returns true if a block in the chunk was changed at or after this time
+     * @param world world of the chunk
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     * @param since time in milliseconds
+     * @return true if the chunk was changed
+     */
+    public static boolean hasChanged(UUID world, int chunkX, int chunkZ, long since)
+    {
+        Map<Long, Long> worldChanges = changes.get(world);
+        if (worldChanges == null)
+            return false;
+        Long time = worldChanges.get(getChunkKey(chunkX, chunkZ));
+        return time != null && time >= since;
+    }
+
+    /**
+     * returns true if a block in one of the chunks in this area was changed at or after this time
+     * @param world world of the chunks
+     * @param since time in milliseconds
+     * @return true if one of the chunks was changed
+     */
+    public static boolean hasChanged(UUID world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, long since)
+    {
+        if (!changes.containsKey(world))
+            return false;
+        for (int x = minChunkX; x <= maxChunkX; x++)
+            for (int z = minChunkZ; z <= maxChunkZ; z++)
+                if (hasChanged(world, x, z, since))
+                    return true;
+        return false;
+    }
+
+    private static void prune(long now)
+    {
+        lastPrune = now;
+        for (ConcurrentHashMap<Long, Long> worldChanges : changes.values())
+            worldChanges.values().removeIf(time -> now - time > MAX_AGE);
+    }
+
+    private static long getChunkKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+}
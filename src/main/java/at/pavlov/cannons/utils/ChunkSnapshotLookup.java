@@ -0,0 +1,112 @@
+package at.pavlov.cannons.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+
+/**
+ * block lookup on chunk snapshots of one world. The snapshots are taken on the main thread and can be read from
+ * any thread afterwards.
+ */
+public class ChunkSnapshotLookup
+{
+    private final UUID world;
+    private final int minHeight;
+    private final int maxHeight;
+    private final ConcurrentHashMap<Long, ChunkSnapshot> snapshotMap = new ConcurrentHashMap<>();
+
+    public ChunkSnapshotLookup(World world)
+    {
+        this.world = world.getUID();
+        this.minHeight = world.getMinHeight();
+        this.maxHeight = world.getMaxHeight();
+    }
+
+    /**
+     * adds the snapshot of a chunk
+     * @param snapshot snapshot of the chunk
+     */
+    public void addSnapshot(ChunkSnapshot snapshot)
+    {
+        snapshotMap.put(getChunkKey(snapshot.getX(), snapshot.getZ()), snapshot);
+    }
+
+    /**
+     * returns the snapshot of this chunk
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     * @return snapshot or null if there is no snapshot for this chunk
+     */
+    public ChunkSnapshot getSnapshot(int chunkX, int chunkZ)
+    {
+        return snapshotMap.get(getChunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * returns true if there is a snapshot of the chunk of this block
+     * @param x x coordinate of the block
+     * @param z z coordinate of the block
+     * @return true if the block can be read
+     */
+    public boolean hasBlock(int x, int z)
+    {
+        return snapshotMap.containsKey(getChunkKey(x >> 4, z >> 4));
+    }
+
+    /**
+     * returns the material of the block
+     * @param x x coordinate of the block
+     * @param y y coordinate of the block
+     * @param z z coordinate of the block
+     * @return material of the block, AIR outside of the world height or null if there is no snapshot of this chunk
+     */
+    public Material getType(int x, int y, int z)
+    {
+        ChunkSnapshot snapshot = snapshotMap.get(getChunkKey(x >> 4, z >> 4));
+        if (snapshot == null)
+            return null;
+        if (y < minHeight || y >= maxHeight)
+            return Material.AIR;
+        return snapshot.getBlockType(x & 15, y, z & 15);
+    }
+
+    /**
+     * returns the block data of the block
+     * @param x x coordinate of the block
+     * @param y y coordinate of the block
+     * @param z z coordinate of the block
+     * @return block data, null if there is no snapshot or the block is outside of the world height
+     */
+    public BlockData getBlockData(int x, int y, int z)
+    {
+        ChunkSnapshot snapshot = snapshotMap.get(getChunkKey(x >> 4, z >> 4));
+        if (snapshot == null || y < minHeight || y >= maxHeight)
+            return null;
+        return snapshot.getBlockData(x & 15, y, z & 15);
+    }
+
+    public UUID getWorld()
+    {
+        return world;
+    }
+
+    public int getMinHeight()
+    {
+        return minHeight;
+    }
+
+    public int getMaxHeight()
+    {
+        return maxHeight;
+    }
+
+    private static long getChunkKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+}
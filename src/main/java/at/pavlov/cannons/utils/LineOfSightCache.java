@@ -0,0 +1,142 @@
+package at.pavlov.cannons.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.UUID;
+
+
+/**
+ * remembers the results of line of sight checks from a muzzle block to a target block. A result stays valid until a
+ * block in one of the chunks read by the check is changed (see ChunkChangeTracker). The least recently used results
+ * are removed if the cache is full. The cache can be used by several threads.
+ */
+public class LineOfSightCache
+{
+    //results are not used for longer, the ChunkChangeTracker forgets older changes
+    private static final long MAX_AGE = 60000;
+
+    private static final class Key
+    {
+        private final UUID world;
+        private final int muzzleX, muzzleY, muzzleZ;
+        private final int targetX, targetY, targetZ;
+        private final int ignoredBlocks;
+
+        private Key(UUID world, int muzzleX, int muzzleY, int muzzleZ, int targetX, int targetY, int targetZ, int ignoredBlocks)
+        {
+            this.world = world;
+            this.muzzleX = muzzleX;
+            this.muzzleY = muzzleY;
+            this.muzzleZ = muzzleZ;
+            this.targetX = targetX;
+            this.targetY = targetY;
+            this.targetZ = targetZ;
+            this.ignoredBlocks = ignoredBlocks;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return muzzleX == key.muzzleX && muzzleY == key.muzzleY && muzzleZ == key.muzzleZ
+                    && targetX == key.targetX && targetY == key.targetY && targetZ == key.targetZ
+                    && ignoredBlocks == key.ignoredBlocks && world.equals(key.world);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(world, muzzleX, muzzleY, muzzleZ, targetX, targetY, targetZ, ignoredBlocks);
+        }
+    }
+
+    private static final class Entry
+    {
+        private final boolean visible;
+        //the blocks were read at this time
+        private final long time;
+        //chunks read by the check
+        private final long[] chunks;
+
+        private Entry(boolean visible, long time, long[] chunks)
+        {
+            this.visible = visible;
+            this.time = time;
+            this.chunks = chunks;
+        }
+    }
+
+    //access order, the eldest entry is the least recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * returns the cached line of sight
+     * @param world world of the muzzle and target
+     * @param ignoredBlocks number of blocks the sight may pass
+     * @return true if visible, false if blocked or null if there is no valid result
+     */
+    public Boolean get(UUID world, int muzzleX, int muzzleY, int muzzleZ, int targetX, int targetY, int targetZ, int ignoredBlocks)
+    {
+        Key key = new Key(world, muzzleX, muzzleY, muzzleZ, targetX, targetY, targetZ, ignoredBlocks);
+        Entry entry;
+        synchronized (entries)
+        {
+            entry = entries.get(key);
+        }
+        if (entry == null)
+            return null;
+
+        boolean valid = System.currentTimeMillis() - entry.time < MAX_AGE;
+        for (int i = 0; valid && i < entry.chunks.length; i++)
+            valid = !ChunkChangeTracker.hasChanged(world, (int) entry.chunks[i], (int) (entry.chunks[i] >> 32), entry.time);
+        if (valid)
+            return entry.visible;
+
+        synchronized (entries)
+        {
+            entries.remove(key, entry);
+        }
+        return null;
+    }
+
+    /**
+     * stores the result of a line of sight check
+     * @param world world of the muzzle and target
+     * @param ignoredBlocks number of blocks the sight may pass
+     * @param visible result of the check
+     * @param time time when the blocks were read, a change at or after this time invalidates the result
+     * @param chunks chunk keys ((z << 32) | x) of all chunks read by the check
+     * @param maxSize maximum number of entries
+     */
+    public void put(UUID world, int muzzleX, int muzzleY, int muzzleZ, int targetX, int targetY, int targetZ, int ignoredBlocks,
+                    boolean visible, long time, long[] chunks, int maxSize)
+    {
+        Key key = new Key(world, muzzleX, muzzleY, muzzleZ, targetX, targetY, targetZ, ignoredBlocks);
+        synchronized (entries)
+        {
+            entries.put(key, new Entry(visible, time, chunks));
+            Iterator<Key> iter = entries.keySet().iterator();
+            while (entries.size() > maxSize && iter.hasNext())
+            {
+                iter.next();
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * returns the key of a chunk in the form used by put
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     * @return chunk key
+     */
+    public static long getChunkKey(int chunkX, int chunkZ)
+    {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+}